@@ -1,6 +1,20 @@
 import api from './axios';
 
-export const generateAlbumPdf = (eventId, imageIds) =>
-  api.post('/api/album/generate', { eventId, imageIds }, {
-    responseType: 'blob',
-  }).then((r) => r.data);
+const API_BASE = process.env.REACT_APP_API_URL || '';
+
+export const submitAlbumJob = (eventId, imageIds) =>
+  api.post('/api/album/jobs', { eventId, imageIds }).then((r) => r.data);
+
+export const albumJobStatus = (eventId, jobId) =>
+  api.get(`/api/album/events/${eventId}/jobs/${jobId}`).then((r) => r.data);
+
+// Submit the album job and poll until the PDF is stored; resolves to its download URL.
+export const generateAlbumPdf = async (eventId, imageIds, intervalMs = 2000) => {
+  let job = (await submitAlbumJob(eventId, imageIds)).data;
+  while (job.status === 'QUEUED' || job.status === 'PROCESSING') {
+    await new Promise((resolve) => setTimeout(resolve, intervalMs));
+    job = (await albumJobStatus(eventId, job.jobId)).data;
+  }
+  if (job.status !== 'COMPLETED') throw new Error(job.message || 'Album generation failed');
+  return job.downloadUrl.startsWith('/') ? `${API_BASE}${job.downloadUrl}` : job.downloadUrl;
+};
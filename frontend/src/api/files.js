@@ -0,0 +1,10 @@
+const API_BASE = process.env.REACT_APP_API_URL || '';
+
+// Storage URLs are absolute for S3 and API-relative for local storage.
+export const fileUrl = (url) => (!url || url.startsWith('http') ? url : API_BASE + url);
+
+// srcset from an image's signed resized derivatives ({ width: url }), or undefined when there are none.
+export const derivativeSrcSet = (img) => {
+  const entries = Object.entries(img.derivativeUrls || {}).filter(([, url]) => url);
+  return entries.length ? entries.map(([w, url]) => `${fileUrl(url)} ${w}w`).join(', ') : undefined;
+};
@@ -17,5 +17,81 @@ export const guestUpload = (eventId, formData) =>
     headers: { 'Content-Type': 'multipart/form-data' },
   }).then((r) => r.data);
 
+// Same upload with one NDJSON result line per file; onResult fires as each file settles.
+export const guestUploadStreaming = async (eventId, formData, onResult) => {
+  const token = localStorage.getItem('token') || localStorage.getItem('guestToken');
+  const res = await fetch(`${process.env.REACT_APP_API_URL || ''}/api/guest/${eventId}/upload`, {
+    method: 'POST',
+    headers: {
+      Accept: 'application/x-ndjson',
+      ...(token ? { Authorization: `Bearer ${token}` } : {}),
+    },
+    body: formData,
+  });
+  const reader = res.body.getReader();
+  const decoder = new TextDecoder();
+  let buffered = '';
+  for (;;) {
+    const { done, value } = await reader.read();
+    buffered += decoder.decode(value || new Uint8Array(), { stream: !done });
+    let newline;
+    while ((newline = buffered.indexOf('\n')) >= 0) {
+      const line = buffered.slice(0, newline).trim();
+      buffered = buffered.slice(newline + 1);
+      if (!line) continue;
+      const item = JSON.parse(line);
+      if (!res.ok) throw new Error(item.message || `Upload failed (${res.status})`);
+      onResult(item);
+    }
+    if (done) break;
+  }
+};
+
 export const guestDeleteImage = (imageId) =>
   api.delete(`/api/guest/images/${imageId}`).then((r) => r.data);
+
+export const guestUploadAsync = (eventId, formData) =>
+  api.post(`/api/guest/${eventId}/upload-jobs`, formData, {
+    headers: { 'Content-Type': 'multipart/form-data' },
+  }).then((r) => r.data);
+
+export const guestUploadJob = (jobId) =>
+  api.get(`/api/guest/upload-jobs/${jobId}`).then((r) => r.data);
+
+export const createChunkedUpload = (data) =>
+  api.post('/api/guest/chunked-uploads', data).then((r) => r.data);
+
+export const chunkedUploadStatus = (uploadId) =>
+  api.get(`/api/guest/chunked-uploads/${uploadId}`).then((r) => r.data);
+
+export const putUploadChunk = (uploadId, start, totalSize, blob) =>
+  api.put(`/api/guest/chunked-uploads/${uploadId}`, blob, {
+    headers: {
+      'Content-Type': 'application/octet-stream',
+      'Content-Range': `bytes ${start}-${start + blob.size - 1}/${totalSize}`,
+    },
+  }).then((r) => r.data);
+
+export const completeChunkedUpload = (uploadId) =>
+  api.post(`/api/guest/chunked-uploads/${uploadId}/complete`).then((r) => r.data);
+
+export const createDirectUploads = (eventId, files) =>
+  api.post(`/api/guest/${eventId}/direct-uploads`, { files }).then((r) => r.data);
+
+// Presigned URLs carry their own credentials, so the bytes go out without the API auth header.
+// ticket.headers are signed into the URL (If-None-Match: * makes it single-use) and must be sent as is.
+export const putDirectUpload = (ticket, file) => {
+  const url = ticket.uploadUrl.startsWith('http')
+    ? ticket.uploadUrl
+    : `${process.env.REACT_APP_API_URL || ''}${ticket.uploadUrl}`;
+  return fetch(url, {
+    method: ticket.method,
+    headers: ticket.headers || { 'Content-Type': ticket.contentType },
+    body: file,
+  }).then((r) => {
+    if (!r.ok) throw new Error(`Upload failed (${r.status})`);
+  });
+};
+
+export const finalizeDirectUploads = (eventId, files) =>
+  api.post(`/api/guest/${eventId}/direct-uploads/finalize`, { files }).then((r) => r.data);
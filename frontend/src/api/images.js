@@ -7,3 +7,16 @@ export const downloadZip = (eventId, imageIds) =>
   api.post(`/api/events/${eventId}/images/download-zip`, { imageIds }, {
     responseType: 'blob',
   }).then((r) => r.data);
+
+export const similarImages = (eventId, imageId) =>
+  api.get(`/api/events/${eventId}/images/${imageId}/similar`).then((r) => r.data);
+
+export const eventArchiveStatus = (eventId) =>
+  api.get(`/api/events/${eventId}/archive`).then((r) => r.data);
+
+export const buildEventArchive = (eventId) =>
+  api.post(`/api/events/${eventId}/archive`).then((r) => r.data);
+
+// Resolves to a Blob when the archive is ready; a 202 (JSON status) means it is still being built.
+export const downloadEventArchive = (eventId) =>
+  api.get(`/api/events/${eventId}/archive/download`, { responseType: 'blob' }).then((r) => r);
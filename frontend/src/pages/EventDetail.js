@@ -4,6 +4,7 @@ import { getEvent, getImagesGrouped, getQrCodeUrl } from '../api/events';
 import { bulkDelete, downloadZip } from '../api/images';
 import { createShareLink } from '../api/shared';
 import { generateAlbumPdf } from '../api/album';
+import { derivativeSrcSet, fileUrl } from '../api/files';
 import { FiDownload, FiTrash2, FiShare2, FiFileText, FiQrCode } from 'react-icons/fi';
 import './EventDetail.css';
 
@@ -106,13 +107,11 @@ export default function EventDetail() {
     }
     setAlbumLoading(true);
     try {
-      const blob = await generateAlbumPdf(eventId, ids);
-      const url = window.URL.createObjectURL(blob);
+      const url = await generateAlbumPdf(eventId, ids);
       const a = document.createElement('a');
       a.href = url;
       a.download = `album-${eventId}.pdf`;
       a.click();
-      window.URL.revokeObjectURL(url);
     } catch (err) {
       alert(err.message);
     } finally {
@@ -180,7 +179,7 @@ export default function EventDetail() {
                       onChange={() => toggleSelect(img.id)}
                     />
                   </label>
-                  <img src={img.storageUrl?.startsWith('http') ? img.storageUrl : (process.env.REACT_APP_API_URL || '') + img.storageUrl} alt={img.originalFileName} />
+                  <img src={fileUrl(img.thumbnailUrl || img.storageUrl)} srcSet={derivativeSrcSet(img)} sizes="(max-width: 600px) 50vw, 240px" alt={img.originalFileName} width={img.width} height={img.height} loading="lazy" />
                 </div>
               ))}
             </div>
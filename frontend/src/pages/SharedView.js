@@ -1,6 +1,7 @@
 import React, { useState, useEffect } from 'react';
 import { useParams } from 'react-router-dom';
 import { getSharedPublic } from '../api/shared';
+import { fileUrl } from '../api/files';
 import './SharedView.css';
 
 export default function SharedView() {
@@ -60,6 +61,7 @@ export default function SharedView() {
   if (!data) return null;
 
   const urls = data.imageUrls || [];
+  const thumbs = data.thumbnailUrls || urls;
 
   return (
     <div className="shared-view">
@@ -70,7 +72,9 @@ export default function SharedView() {
       <div className="shared-view-grid">
         {urls.map((url, i) => (
           <div key={i} className="shared-view-item">
-            <img src={url.startsWith('http') ? url : (process.env.REACT_APP_API_URL || '') + url} alt={`Photo ${i + 1}`} />
+            <a href={fileUrl(url)} target="_blank" rel="noreferrer">
+              <img src={fileUrl(thumbs[i] || url)} alt={`Photo ${i + 1}`} loading="lazy" />
+            </a>
           </div>
         ))}
       </div>
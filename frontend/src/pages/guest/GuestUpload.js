@@ -2,6 +2,7 @@ import React, { useState, useEffect } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
 import { useDropzone } from 'react-dropzone';
 import { guestDashboard, guestUpload, guestDeleteImage } from '../../api/guest';
+import { derivativeSrcSet, fileUrl } from '../../api/files';
 import { FiUpload, FiTrash2 } from 'react-icons/fi';
 import './GuestUpload.css';
 
@@ -86,7 +87,7 @@ export default function GuestUpload() {
       <div className="guest-upload-grid">
         {images.map((img) => (
           <div key={img.id} className="guest-upload-item card">
-            <img src={img.storageUrl?.startsWith('http') ? img.storageUrl : (process.env.REACT_APP_API_URL || '') + img.storageUrl} alt={img.originalFileName} />
+            <img src={fileUrl(img.thumbnailUrl || img.storageUrl)} srcSet={derivativeSrcSet(img)} sizes="(max-width: 600px) 50vw, 240px" alt={img.originalFileName} width={img.width} height={img.height} loading="lazy" />
             {eventData.canModify && (
               <button type="button" className="btn btn-ghost guest-upload-delete" onClick={() => handleDelete(img.id)} aria-label="Delete">
                 <FiTrash2 />
@@ -5,6 +5,7 @@
 import org.springframework.context.annotation.Profile;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 @Configuration
 @Profile("prod")
@@ -16,4 +17,11 @@ public S3Client s3Client() {
                 .region(Region.AP_SOUTH_1)
                 .build();
     }
+
+    @Bean(destroyMethod = "close")
+    public S3Presigner s3Presigner() {
+        return S3Presigner.builder()
+                .region(Region.AP_SOUTH_1)
+                .build();
+    }
 }
@@ -0,0 +1,61 @@
+package com.example.eventphoto.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executors for upload processing: a core-sized pool for decode/hash work and a larger
+ * pool for blocking storage I/O, so CPU stages never starve behind slow S3 round-trips.
+ */
+@Configuration
+public class UploadExecutorConfig {
+
+    @Value("${upload.cpu-threads:0}")
+    private int cpuThreads;
+
+    @Value("${upload.io-threads:32}")
+    private int ioThreads;
+
+    @Value("${upload.async.workers:4}")
+    private int asyncWorkers;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService imageProcessingExecutor() {
+        int threads = cpuThreads > 0 ? cpuThreads : Runtime.getRuntime().availableProcessors();
+        return newPool("image-cpu-", threads);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService storageIoExecutor() {
+        return newPool("storage-io-", ioThreads);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService uploadJobExecutor() {
+        return newPool("upload-job-", asyncWorkers);
+    }
+
+    private static ExecutorService newPool(String prefix, int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), namedDaemonThreads(prefix));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory namedDaemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -1,10 +1,15 @@
 package com.example.eventphoto.controller;
 
 import com.example.eventphoto.dto.ApiResponse;
+import com.example.eventphoto.dto.BackfillResponse;
+import com.example.eventphoto.service.CachingStorageService;
+import com.example.eventphoto.service.RenditionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
@@ -14,8 +19,43 @@
 @RequiredArgsConstructor
 public class AdminController {
 
+    private final RenditionService renditionService;
+    private final CachingStorageService cachingStorageService;
+
     @GetMapping("/health")
     public ResponseEntity<ApiResponse<Map<String, String>>> health() {
         return ResponseEntity.ok(ApiResponse.success("OK", Map.of("role", "admin", "status", "placeholder")));
     }
+
+    /**
+     * Generate thumbnail/preview renditions for up to {@code limit} images that predate them, with ids
+     * above {@code afterId}. Call repeatedly with the returned nextAfterId until it scans 0.
+     */
+    @PostMapping("/renditions/backfill")
+    public ResponseEntity<ApiResponse<BackfillResponse>> backfillRenditions(
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(ApiResponse.success("OK",
+                renditionService.backfill(afterId, Math.min(Math.max(limit, 1), 1000))));
+    }
+
+    /**
+     * Compute dimensions and BlurHash placeholders for up to {@code limit} images that predate them,
+     * with ids above {@code afterId}. Call repeatedly with the returned nextAfterId until it scans 0.
+     */
+    @PostMapping("/placeholders/backfill")
+    public ResponseEntity<ApiResponse<BackfillResponse>> backfillPlaceholders(
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(ApiResponse.success("OK",
+                renditionService.backfillPlaceholders(afterId, Math.min(Math.max(limit, 1), 1000))));
+    }
+
+    /**
+     * Hit/miss/eviction counters of the storage read cache.
+     */
+    @GetMapping("/storage-cache")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> storageCache() {
+        return ResponseEntity.ok(ApiResponse.success("OK", cachingStorageService.stats()));
+    }
 }
@@ -1,42 +1,65 @@
 package com.example.eventphoto.controller;
 
-import com.example.eventphoto.dto.ApiResponse;
+import com.example.eventphoto.dto.AlbumJobResponse;
 import com.example.eventphoto.dto.AlbumRequest;
+import com.example.eventphoto.dto.ApiResponse;
+import com.example.eventphoto.model.AlbumJobStatus;
 import com.example.eventphoto.security.JwtPrincipal;
-import com.example.eventphoto.service.AlbumPdfService;
+import com.example.eventphoto.service.AlbumJobService;
 import com.example.eventphoto.service.EventService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
-import java.util.List;
+import java.net.URI;
 
 @RestController
 @RequestMapping("/api/album")
 @RequiredArgsConstructor
 public class AlbumController {
 
-    private final AlbumPdfService albumPdfService;
+    private final AlbumJobService albumJobService;
     private final EventService eventService;
 
-    @PostMapping("/generate")
-    public ResponseEntity<byte[]> generatePdf(@RequestBody AlbumRequest request) throws IOException {
+    /**
+     * Queue a PDF album of the selected images; poll the returned job, then download it. An album
+     * that was already generated for the same selection comes back COMPLETED straight away.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<ApiResponse<AlbumJobResponse>> submit(@Valid @RequestBody AlbumRequest request) throws IOException {
+        ensureOwner(request.getEventId());
+        AlbumJobResponse job = albumJobService.submit(request.getEventId(), request.getImageIds());
+        HttpStatus status = job.getStatus() == AlbumJobStatus.COMPLETED ? HttpStatus.OK : HttpStatus.ACCEPTED;
+        return ResponseEntity.status(status).body(ApiResponse.success("Album queued", job));
+    }
+
+    @GetMapping("/events/{eventId}/jobs/{jobId}")
+    public ResponseEntity<ApiResponse<AlbumJobResponse>> status(
+            @PathVariable Long eventId,
+            @PathVariable String jobId) throws IOException {
+        ensureOwner(eventId);
+        return ResponseEntity.ok(ApiResponse.success("OK", albumJobService.status(eventId, jobId)));
+    }
+
+    /**
+     * Redirect to a signed URL of the stored PDF.
+     */
+    @GetMapping("/events/{eventId}/jobs/{jobId}/download")
+    public ResponseEntity<Void> download(
+            @PathVariable Long eventId,
+            @PathVariable String jobId) throws IOException {
+        ensureOwner(eventId);
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .location(URI.create(albumJobService.downloadUrl(eventId, jobId)))
+                .build();
+    }
+
+    private void ensureOwner(Long eventId) {
         JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        eventService.ensureCustomerOwnsEvent(request.getEventId(), principal.getCustomerId());
-        List<Long> imageIds = request.getImageIds() != null && !request.getImageIds().isEmpty()
-                ? request.getImageIds()
-                : List.of();
-        if (imageIds.isEmpty()) {
-            return ResponseEntity.badRequest().build();
-        }
-        byte[] pdf = albumPdfService.generatePdf(imageIds);
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_PDF)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"album-" + request.getEventId() + ".pdf\"")
-                .body(pdf);
+        eventService.ensureCustomerOwnsEvent(eventId, principal.getCustomerId());
     }
 }
@@ -0,0 +1,90 @@
+package com.example.eventphoto.controller;
+
+import com.example.eventphoto.dto.*;
+import com.example.eventphoto.security.JwtPrincipal;
+import com.example.eventphoto.service.ChunkedUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * Resumable uploads. A client creates an upload, PUTs consecutive byte ranges
+ * ({@code Content-Range: bytes start-end/total} or {@code Upload-Offset}), asks for the current offset
+ * with GET/HEAD after a dropped connection, and finally completes it.
+ */
+@RestController
+@RequestMapping("/api/guest/chunked-uploads")
+@RequiredArgsConstructor
+public class ChunkedUploadController {
+
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<ChunkedUploadResponse>> create(@Valid @RequestBody ChunkedUploadCreateRequest request) {
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        ChunkedUploadResponse response = chunkedUploadService.create(request, principal.getGuestId());
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(UPLOAD_OFFSET, "0")
+                .body(ApiResponse.success("Upload created", response));
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<ApiResponse<ChunkedUploadResponse>> status(@PathVariable String uploadId) {
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        ChunkedUploadResponse response = chunkedUploadService.get(uploadId, principal.getGuestId());
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET, String.valueOf(response.getOffset()))
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(ApiResponse.success("OK", response));
+    }
+
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<ApiResponse<ChunkedUploadResponse>> appendChunk(
+            @PathVariable String uploadId,
+            @RequestHeader(value = HttpHeaders.CONTENT_RANGE, required = false) String contentRange,
+            @RequestHeader(value = UPLOAD_OFFSET, required = false) Long uploadOffset,
+            HttpServletRequest request) throws IOException {
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        long offset = contentRange != null ? parseRangeStart(contentRange) : (uploadOffset != null ? uploadOffset : 0L);
+        ChunkedUploadResponse response = chunkedUploadService.appendChunk(uploadId, principal.getGuestId(), offset, request.getInputStream());
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET, String.valueOf(response.getOffset()))
+                .body(ApiResponse.success("OK", response));
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<ApiResponse<UploadFileResult>> complete(@PathVariable String uploadId) {
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        UploadFileResult result = chunkedUploadService.complete(uploadId, principal.getGuestId());
+        return ResponseEntity.ok(ApiResponse.success(result.getStatus().name(), result));
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<ApiResponse<Void>> abort(@PathVariable String uploadId) {
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        chunkedUploadService.abort(uploadId, principal.getGuestId());
+        return ResponseEntity.ok(ApiResponse.success("Aborted", null));
+    }
+
+    private static long parseRangeStart(String contentRange) {
+        // bytes <start>-<end>/<total>
+        String spec = contentRange.trim();
+        if (!spec.startsWith("bytes ") || !spec.contains("-")) {
+            throw new RuntimeException("Invalid Content-Range header");
+        }
+        try {
+            return Long.parseLong(spec.substring(6, spec.indexOf('-')).trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid Content-Range header");
+        }
+    }
+}
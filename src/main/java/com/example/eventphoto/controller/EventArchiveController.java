@@ -0,0 +1,71 @@
+package com.example.eventphoto.controller;
+
+import com.example.eventphoto.dto.ApiResponse;
+import com.example.eventphoto.dto.EventArchiveResponse;
+import com.example.eventphoto.security.JwtPrincipal;
+import com.example.eventphoto.service.EventArchiveService;
+import com.example.eventphoto.service.EventService;
+import com.example.eventphoto.service.VirtualZip;
+import com.example.eventphoto.service.ZipStreamService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * The event's precomputed "download all" archive: build it, poll its status, download it.
+ */
+@RestController
+@RequestMapping("/api/events/{eventId}/archive")
+@RequiredArgsConstructor
+public class EventArchiveController {
+
+    private final EventArchiveService eventArchiveService;
+    private final EventService eventService;
+    private final ZipStreamService zipStreamService;
+    private final ObjectMapper objectMapper;
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<EventArchiveResponse>> status(@PathVariable Long eventId) {
+        ensureOwner(eventId);
+        return ResponseEntity.ok(ApiResponse.success("OK", eventArchiveService.status(eventId)));
+    }
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<EventArchiveResponse>> build(@PathVariable Long eventId) {
+        ensureOwner(eventId);
+        return ResponseEntity.ok(ApiResponse.success("OK", eventArchiveService.requestBuild(eventId)));
+    }
+
+    /**
+     * The stored archive when it is up to date (with Range / If-Range support); otherwise starts a
+     * build and answers 202 with its status, to be polled before downloading again.
+     */
+    @GetMapping("/download")
+    public void download(@PathVariable Long eventId,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        ensureOwner(eventId);
+        Optional<VirtualZip> archive = eventArchiveService.currentArchive(eventId);
+        if (archive.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_ACCEPTED);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    ApiResponse.success("Archive is being prepared", eventArchiveService.requestBuild(eventId)));
+            return;
+        }
+        ZipResponses.send(archive.get(), zipStreamService, "event-" + eventId + "-all-photos.zip", request, response);
+    }
+
+    private void ensureOwner(Long eventId) {
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        eventService.ensureCustomerOwnsEvent(eventId, principal.getCustomerId());
+    }
+}
@@ -5,16 +5,20 @@
 import com.example.eventphoto.security.JwtPrincipal;
 import com.example.eventphoto.service.CustomerService;
 import com.example.eventphoto.service.EventService;
+import com.example.eventphoto.service.GalleryPublishService;
 import com.example.eventphoto.service.GuestService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/events")
@@ -24,6 +28,7 @@ public class EventController {
     private final EventService eventService;
     private final CustomerService customerService;
     private final GuestService guestService;
+    private final GalleryPublishService galleryPublishService;
 
     @PostMapping
     public ResponseEntity<ApiResponse<EventResponse>> create(@Valid @RequestBody EventCreateRequest request) {
@@ -57,6 +62,10 @@ public ResponseEntity<ApiResponse<EventPublicInfoDto>> getByCode(@PathVariable S
     public ResponseEntity<ApiResponse<EventImagesGroupedResponse>> getImagesGrouped(@PathVariable Long eventId) {
         JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         eventService.ensureCustomerOwnsEvent(eventId, principal.getCustomerId());
+        Optional<String> published = galleryPublishService.publishedGalleryUrl(eventId);
+        if (published.isPresent()) {
+            return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(published.get())).build();
+        }
         EventImagesGroupedResponse grouped = eventService.getImagesGroupedByGuest(eventId);
         return ResponseEntity.ok(ApiResponse.success("OK", grouped));
     }
@@ -1,13 +1,34 @@
 package com.example.eventphoto.controller;
 
+import com.example.eventphoto.security.UrlSigner;
+import com.example.eventphoto.service.DerivativeService;
+import com.example.eventphoto.service.DirectUploadService;
+import com.example.eventphoto.service.SignedUrlService;
 import com.example.eventphoto.service.StorageService;
+import com.example.eventphoto.service.StoredObjectInfo;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/files")
@@ -15,26 +36,167 @@
 public class FileController {
 
     private final StorageService storageService;
+    private final DerivativeService derivativeService;
+    private final UrlSigner urlSigner;
+    private final SignedUrlService signedUrlService;
+    private final DirectUploadService directUploadService;
 
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Value("${upload.direct.max-file-size:26214400}")
+    private int maxDirectUploadBytes;
+
+    /**
+     * Stream a stored file. Supports single byte ranges (with If-Range), answers If-None-Match /
+     * If-Modified-Since with 304, and marks responses immutable since keys embed a UUID. Local files
+     * go out via the container's sendfile when available, otherwise via FileChannel.transferTo.
+     * While signed URLs are enabled, only URLs issued by the local backend (exp + sig) are served.
+     */
     @GetMapping("/**")
-    public ResponseEntity<byte[]> serve(@RequestParam("key") String key) throws IOException {
-        byte[] bytes = storageService.getFileBytes(key);
-        if (bytes == null) {
+    public void serve(@RequestParam("key") String key,
+                      @RequestParam(value = "exp", required = false) Long expires,
+                      @RequestParam(value = "sig", required = false) String signature,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (signedUrlService.isEnabled() && !urlSigner.verify("GET", key, expires, signature)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        Optional<StoredObjectInfo> stat = storageService.stat(key);
+        if (stat.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        StoredObjectInfo info = stat.get();
+        String etag = info.getEtag() == null ? null
+                : info.getEtag().startsWith("\"") ? info.getEtag() : "\"" + info.getEtag() + "\"";
+        long lastModified = info.getLastModified() != null ? info.getLastModified().toEpochMilli() : -1;
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long size = info.getSize();
+        long start = 0;
+        long length = size;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Multiple ranges are rare for images; answering with the full body is allowed.
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                long rangeStart;
+                long rangeEnd;
+                try {
+                    rangeStart = range.getRangeStart(size);
+                    rangeEnd = range.getRangeEnd(size);
+                } catch (IllegalArgumentException e) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                start = rangeStart;
+                length = rangeEnd - rangeStart + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + rangeStart + "-" + rangeEnd + "/" + size);
+            }
+        }
+
+        response.setContentType(contentTypeFor(key, info.getContentType()));
+        response.setContentLengthLong(length);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable().getHeaderValue());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        Optional<Path> localPath = storageService.localPath(key);
+        if (localPath.isPresent() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, localPath.get().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        storageService.transferTo(key, start, length, response.getOutputStream());
+    }
+
+    private static String contentTypeFor(String key, String storedType) {
+        if (storedType != null && storedType.startsWith("image/")) return storedType;
+        String lower = key.toLowerCase();
+        if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) return "image/jpeg";
+        if (lower.endsWith(".png")) return "image/png";
+        if (lower.endsWith(".gif")) return "image/gif";
+        if (lower.endsWith(".webp")) return "image/webp";
+        return storedType != null ? storedType : "application/octet-stream";
+    }
+
+    /**
+     * Resized JPEG of a stored image fitting inside w x h (either may be omitted), generated once
+     * and then served from the disk cache. While signed URLs are enabled, only URLs issued by
+     * {@link SignedUrlService#derivativeUrl} (exp + sig over the key and sizes) are served.
+     */
+    @GetMapping("/derivative")
+    public ResponseEntity<Resource> derivative(
+            @RequestParam("key") String key,
+            @RequestParam(value = "w", required = false) Integer width,
+            @RequestParam(value = "h", required = false) Integer height,
+            @RequestParam(value = "q", required = false) Integer quality,
+            @RequestParam(value = "exp", required = false) Long expires,
+            @RequestParam(value = "sig", required = false) String signature,
+            WebRequest webRequest) throws IOException {
+        if (signedUrlService.isEnabled() && !urlSigner.verify("GET",
+                SignedUrlService.derivativeResource(key, width, height, quality), expires, signature)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        Path path;
+        try {
+            path = derivativeService.resize(key, width, height, quality);
+        } catch (FileNotFoundException e) {
             return ResponseEntity.notFound().build();
         }
-        String contentType = "application/octet-stream";
-        if (key.toLowerCase().endsWith(".jpg") || key.toLowerCase().endsWith(".jpeg")) {
-            contentType = "image/jpeg";
-        } else if (key.toLowerCase().endsWith(".png")) {
-            contentType = "image/png";
-        } else if (key.toLowerCase().endsWith(".gif")) {
-            contentType = "image/gif";
-        } else if (key.toLowerCase().endsWith(".webp")) {
-            contentType = "image/webp";
+        String fileName = path.getFileName().toString();
+        String etag = "\"" + fileName.substring(0, fileName.indexOf('.')) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
         }
         return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
-                .body(bytes);
+                .contentType(MediaType.IMAGE_JPEG)
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .eTag(etag)
+                .contentLength(Files.size(path))
+                .body(new FileSystemResource(path));
+    }
+
+    /**
+     * Target of the signed PUT URLs issued by the local storage backend for direct uploads. Like the
+     * S3 URLs (signed with If-None-Match: *) each one writes its key once.
+     */
+    @PutMapping("/upload")
+    public ResponseEntity<Void> upload(
+            @RequestParam("key") String key,
+            @RequestParam("exp") Long expires,
+            @RequestParam("sig") String signature,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            HttpServletRequest request) throws IOException {
+        if (!urlSigner.verify("PUT", key, expires, signature)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!directUploadService.isUploadable(key)) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        byte[] body = request.getInputStream().readNBytes(maxDirectUploadBytes + 1);
+        if (body.length > maxDirectUploadBytes) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        storageService.upload(key, body, contentType);
+        return ResponseEntity.ok().build();
     }
 }
@@ -2,16 +2,24 @@
 
 import com.example.eventphoto.dto.*;
 import com.example.eventphoto.security.JwtPrincipal;
+import com.example.eventphoto.service.DirectUploadService;
 import com.example.eventphoto.service.GuestService;
 import com.example.eventphoto.service.ImageService;
+import com.example.eventphoto.service.UploadJobService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/guest")
@@ -20,6 +28,11 @@ public class GuestController {
 
     private final GuestService guestService;
     private final ImageService imageService;
+    private final UploadJobService uploadJobService;
+    private final DirectUploadService directUploadService;
+    private final ObjectMapper objectMapper;
+
+    private static final String NDJSON = "application/x-ndjson";
 
     @PostMapping("/register")
     public ResponseEntity<ApiResponse<GuestResponse>> register(@Valid @RequestBody GuestRegisterRequest request) {
@@ -55,6 +68,77 @@ public ResponseEntity<ApiResponse<List<ImageResponse>>> upload(
         return ResponseEntity.ok(ApiResponse.success("Uploaded " + uploaded.size() + " image(s)", uploaded));
     }
 
+    /**
+     * Same upload, answered as NDJSON (Accept: application/x-ndjson): one UploadFileResult line per
+     * file, flushed as soon as that file's outcome is final, in completion order.
+     */
+    @PostMapping(value = "/{eventId}/upload", produces = NDJSON)
+    public void uploadStreaming(
+            @PathVariable Long eventId,
+            @RequestParam("files") MultipartFile[] files,
+            HttpServletResponse response) throws IOException {
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        response.setContentType(NDJSON);
+        OutputStream out = response.getOutputStream();
+        AtomicBoolean clientGone = new AtomicBoolean();
+        try {
+            imageService.uploadStreaming(eventId, principal.getGuestId(), files, result -> writeLine(out, result, clientGone));
+        } catch (RuntimeException e) {
+            // Only reachable before the first line: the batch was refused as a whole.
+            if (!response.isCommitted()) response.setStatus(HttpStatus.BAD_REQUEST.value());
+            writeLine(out, ApiResponse.error(e.getMessage()), clientGone);
+        }
+    }
+
+    /**
+     * Write one NDJSON line. A client that disconnects mid-batch does not abort the upload: the
+     * remaining files are still ingested, their lines are just dropped.
+     */
+    private void writeLine(OutputStream out, Object value, AtomicBoolean clientGone) {
+        if (clientGone.get()) return;
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            clientGone.set(true);
+        }
+    }
+
+    @PostMapping("/{eventId}/upload-jobs")
+    public ResponseEntity<ApiResponse<UploadJobResponse>> submitUploadJob(
+            @PathVariable Long eventId,
+            @RequestParam("files") MultipartFile[] files) {
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        UploadJobResponse job = uploadJobService.submit(eventId, principal.getGuestId(), files);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("Upload queued", job));
+    }
+
+    @GetMapping("/upload-jobs/{jobId}")
+    public ResponseEntity<ApiResponse<UploadJobResponse>> uploadJobStatus(@PathVariable String jobId) {
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        UploadJobResponse job = uploadJobService.getJob(jobId, principal.getGuestId());
+        return ResponseEntity.ok(ApiResponse.success("OK", job));
+    }
+
+    @PostMapping("/{eventId}/direct-uploads")
+    public ResponseEntity<ApiResponse<List<DirectUploadTicket>>> createDirectUploads(
+            @PathVariable Long eventId,
+            @Valid @RequestBody DirectUploadRequest request) {
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        List<DirectUploadTicket> tickets = directUploadService.createTickets(eventId, principal.getGuestId(), request.getFiles());
+        return ResponseEntity.ok(ApiResponse.success("OK", tickets));
+    }
+
+    @PostMapping("/{eventId}/direct-uploads/finalize")
+    public ResponseEntity<ApiResponse<List<UploadFileResult>>> finalizeDirectUploads(
+            @PathVariable Long eventId,
+            @Valid @RequestBody DirectUploadRequest request) {
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        List<UploadFileResult> results = directUploadService.finalizeUploads(eventId, principal.getGuestId(), request.getFiles());
+        return ResponseEntity.ok(ApiResponse.success("OK", results));
+    }
+
     @DeleteMapping("/images/{imageId}")
     public ResponseEntity<ApiResponse<Void>> deleteOwnImage(@PathVariable Long imageId) {
         JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
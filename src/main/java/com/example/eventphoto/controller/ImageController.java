@@ -4,9 +4,12 @@
 import com.example.eventphoto.security.JwtPrincipal;
 import com.example.eventphoto.service.EventService;
 import com.example.eventphoto.service.ImageService;
+import com.example.eventphoto.service.SpriteService;
+import com.example.eventphoto.service.VirtualZip;
+import com.example.eventphoto.service.ZipStreamService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
@@ -21,6 +24,8 @@ public class ImageController {
 
     private final ImageService imageService;
     private final EventService eventService;
+    private final SpriteService spriteService;
+    private final ZipStreamService zipStreamService;
 
     @PostMapping("/bulk-delete")
     public ResponseEntity<ApiResponse<Void>> bulkDelete(
@@ -32,16 +37,58 @@ public ResponseEntity<ApiResponse<Void>> bulkDelete(
         return ResponseEntity.ok(ApiResponse.success("Deleted", null));
     }
 
-    @PostMapping("/download-zip")
-    public ResponseEntity<byte[]> downloadZip(
+    @GetMapping("/{imageId}/similar")
+    public ResponseEntity<ApiResponse<List<ImageResponse>>> similar(
+            @PathVariable Long eventId,
+            @PathVariable Long imageId) {
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        eventService.ensureCustomerOwnsEvent(eventId, principal.getCustomerId());
+        return ResponseEntity.ok(ApiResponse.success("OK", imageService.findSimilar(eventId, imageId)));
+    }
+
+    /**
+     * One contact-sheet image for a page of thumbnails plus the manifest locating each image in it.
+     */
+    @PostMapping("/sprite")
+    public ResponseEntity<ApiResponse<SpriteResponse>> sprite(
             @PathVariable Long eventId,
             @RequestBody ImageIdsRequest request) throws IOException {
         JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         eventService.ensureCustomerOwnsEvent(eventId, principal.getCustomerId());
-        byte[] zip = imageService.downloadAsZip(request.getImageIds(), principal.getCustomerId());
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType("application/zip"))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"event-" + eventId + "-photos.zip\"")
-                .body(zip);
+        return ResponseEntity.ok(ApiResponse.success("OK", spriteService.getSprite(eventId, request.getImageIds())));
+    }
+
+    /**
+     * The selected images as a ZIP, streamed without being built. The layout is deterministic, so
+     * Range / If-Range requests resume an interrupted download.
+     */
+    @PostMapping("/download-zip")
+    public void downloadZip(
+            @PathVariable Long eventId,
+            @RequestBody ImageIdsRequest request,
+            HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse) throws IOException {
+        sendZip(eventId, request.getImageIds(), httpRequest, httpResponse);
+    }
+
+    /**
+     * GET form of {@link #downloadZip} ({@code ?ids=1,2,3}) for clients that resume downloads by
+     * re-requesting the same URL.
+     */
+    @GetMapping("/download-zip")
+    public void downloadZipByIds(
+            @PathVariable Long eventId,
+            @RequestParam("ids") List<Long> imageIds,
+            HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse) throws IOException {
+        sendZip(eventId, imageIds, httpRequest, httpResponse);
+    }
+
+    private void sendZip(Long eventId, List<Long> imageIds, HttpServletRequest httpRequest,
+                         HttpServletResponse httpResponse) throws IOException {
+        JwtPrincipal principal = (JwtPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        eventService.ensureCustomerOwnsEvent(eventId, principal.getCustomerId());
+        VirtualZip zip = imageService.zipArchive(imageIds, principal.getCustomerId());
+        ZipResponses.send(zip, zipStreamService, "event-" + eventId + "-photos.zip", httpRequest, httpResponse);
     }
 }
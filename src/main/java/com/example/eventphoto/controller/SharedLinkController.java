@@ -4,14 +4,18 @@
 import com.example.eventphoto.model.Customer;
 import com.example.eventphoto.security.JwtPrincipal;
 import com.example.eventphoto.service.CustomerService;
+import com.example.eventphoto.service.GalleryPublishService;
 import com.example.eventphoto.service.ShareLinkService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/shared")
@@ -20,6 +24,7 @@ public class SharedLinkController {
 
     private final ShareLinkService shareLinkService;
     private final CustomerService customerService;
+    private final GalleryPublishService galleryPublishService;
 
     @PostMapping("/create")
     public ResponseEntity<ApiResponse<SharedLinkResponse>> create(@Valid @RequestBody SharedLinkCreateRequest request) {
@@ -33,6 +38,10 @@ public ResponseEntity<ApiResponse<SharedLinkResponse>> create(@Valid @RequestBod
     public ResponseEntity<ApiResponse<SharedLinkResponse>> getPublic(
             @PathVariable String shareCode,
             @RequestParam(required = false) String password) {
+        Optional<String> published = galleryPublishService.publishedShareUrl(shareCode);
+        if (published.isPresent()) {
+            return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(published.get())).build();
+        }
         SharedLinkResponse response = shareLinkService.getByShareCodePublic(shareCode, password);
         return ResponseEntity.ok(ApiResponse.success("OK", response));
     }
@@ -0,0 +1,68 @@
+package com.example.eventphoto.controller;
+
+import com.example.eventphoto.service.VirtualZip;
+import com.example.eventphoto.service.ZipStreamService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a {@link VirtualZip} as a download: exact Content-Length, strong ETag, and single byte
+ * ranges (honoured only while If-Range, when sent, still matches the ETag) so interrupted
+ * downloads can resume where they stopped.
+ */
+final class ZipResponses {
+
+    private ZipResponses() {
+    }
+
+    static void send(VirtualZip zip, ZipStreamService zipStreamService, String fileName,
+                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long size = zip.getLength();
+        long start = 0;
+        long length = size;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(zip.getEtag()))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Download managers resume with a single range; anything else gets the whole archive.
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                long rangeStart;
+                long rangeEnd;
+                try {
+                    rangeStart = range.getRangeStart(size);
+                    rangeEnd = range.getRangeEnd(size);
+                } catch (IllegalArgumentException e) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                start = rangeStart;
+                length = rangeEnd - rangeStart + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + rangeStart + "-" + rangeEnd + "/" + size);
+            }
+        }
+
+        response.setContentType("application/zip");
+        response.setContentLengthLong(length);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, zip.getEtag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+        zipStreamService.write(zip, start, length, response.getOutputStream());
+    }
+}
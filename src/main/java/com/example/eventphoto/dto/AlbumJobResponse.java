@@ -0,0 +1,24 @@
+package com.example.eventphoto.dto;
+
+import com.example.eventphoto.model.AlbumJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An album job. The job id identifies the album's content (image set and layout), so submitting the
+ * same selection again returns the same job. downloadUrl is set once the PDF is stored.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlbumJobResponse {
+    private String jobId;
+    private Long eventId;
+    private AlbumJobStatus status;
+    private Long sizeBytes;
+    private String downloadUrl;
+    private String message;
+}
@@ -0,0 +1,20 @@
+package com.example.eventphoto.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of an admin backfill. Rows that failed are not retried by later pages; call again with
+ * {@code afterId = nextAfterId} until {@code scanned} is 0.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillResponse {
+    private int processed;
+    private int scanned;
+    private long nextAfterId;
+}
@@ -0,0 +1,18 @@
+package com.example.eventphoto.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class ChunkedUploadCreateRequest {
+    @NotNull
+    private Long eventId;
+    @NotBlank
+    private String fileName;
+    private String contentType;
+    @NotNull
+    @Positive
+    private Long size;
+}
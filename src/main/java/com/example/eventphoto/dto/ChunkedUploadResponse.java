@@ -0,0 +1,22 @@
+package com.example.eventphoto.dto;
+
+import com.example.eventphoto.model.ChunkedUploadStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkedUploadResponse {
+    private String uploadId;
+    private Long eventId;
+    private String fileName;
+    private Long totalSize;
+    private Long offset;
+    private ChunkedUploadStatus status;
+    private Long minChunkSize;
+    private Long maxChunkSize;
+}
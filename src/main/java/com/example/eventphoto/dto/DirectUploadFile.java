@@ -0,0 +1,17 @@
+package com.example.eventphoto.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class DirectUploadFile {
+    private String storageKey;
+    @NotBlank
+    private String fileName;
+    private String contentType;
+    @NotNull
+    @Positive
+    private Long size;
+}
@@ -0,0 +1,14 @@
+package com.example.eventphoto.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DirectUploadRequest {
+    @NotEmpty
+    @Valid
+    private List<DirectUploadFile> files;
+}
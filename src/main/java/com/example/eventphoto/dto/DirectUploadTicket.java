@@ -0,0 +1,24 @@
+package com.example.eventphoto.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectUploadTicket {
+    private String fileName;
+    private String storageKey;
+    private String uploadUrl;
+    private String method;
+    private String contentType;
+    /** Headers the PUT must carry exactly as given (they are part of the signature). */
+    private Map<String, String> headers;
+    private Instant expiresAt;
+}
@@ -0,0 +1,26 @@
+package com.example.eventphoto.dto;
+
+import com.example.eventphoto.model.EventArchiveStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * State of an event's precomputed "download all" archive. imageCount, sizeBytes and builtAt describe
+ * the last stored build, which may be behind the event while the status is STALE or BUILDING.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventArchiveResponse {
+    private Long eventId;
+    private EventArchiveStatus status;
+    private Integer imageCount;
+    private Long sizeBytes;
+    private Instant builtAt;
+    private String message;
+}
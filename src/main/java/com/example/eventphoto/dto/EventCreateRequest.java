@@ -1,8 +1,11 @@
 package com.example.eventphoto.dto;
 
 import com.example.eventphoto.model.EventType;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import lombok.Data;
 
 import java.time.LocalDate;
@@ -26,4 +29,17 @@ public class EventCreateRequest {
 
     private String venue;
     private Integer expectedGuests;
+
+    /** Optional downscaling of oversized uploads; leave all null to keep originals as sent. */
+    @Positive
+    private Double maxMegapixels;
+
+    @Min(512)
+    private Integer maxLongEdge;
+
+    @Min(30)
+    @Max(100)
+    private Integer downscaleQuality;
+
+    private Boolean keepOriginals;
 }
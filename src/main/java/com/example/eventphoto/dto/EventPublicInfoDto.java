@@ -14,6 +14,7 @@
 @NoArgsConstructor
 @AllArgsConstructor
 public class EventPublicInfoDto {
+    private String eventCode;
     private String name;
     private EventType eventType;
     private LocalDate eventDate;
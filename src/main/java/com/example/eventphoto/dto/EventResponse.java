@@ -25,6 +25,10 @@ public class EventResponse {
     private LocalTime eventEndTime;
     private String venue;
     private Integer expectedGuests;
+    private Double maxMegapixels;
+    private Integer maxLongEdge;
+    private Integer downscaleQuality;
+    private Boolean keepOriginals;
     private String qrCodeUrl;
     private Long customerId;
     private Boolean isActive;
@@ -18,4 +18,5 @@ public class GuestEventWithImagesDto {
     private boolean canModify;
     private String modifyDeadlineMessage;
     private List<ImageResponse> images;
+    private List<UploadJobResponse> uploadJobs;
 }
@@ -10,10 +10,13 @@
 @NoArgsConstructor
 @AllArgsConstructor
 public class GuestResponse {
+    private String token;
+    private Long id;
     private Long guestId;
     private String name;
     private String email;
     private Integer uploadCount;
     private String eventCode;
     private Long eventId;
+    private String eventName;
 }
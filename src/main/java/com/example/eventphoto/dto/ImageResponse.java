@@ -6,6 +6,7 @@
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 @Builder
@@ -16,6 +17,13 @@ public class ImageResponse {
     private String fileName;
     private String originalFileName;
     private String storageUrl;
+    private String thumbnailUrl;
+    private String previewUrl;
+    /** Signed resized-derivative URL per width in pixels, for srcset. */
+    private Map<Integer, String> derivativeUrls;
+    private Integer width;
+    private Integer height;
+    private String blurHash;
     private Double fileSizeMb;
     private String contentType;
     private Long eventId;
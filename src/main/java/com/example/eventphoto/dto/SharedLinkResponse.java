@@ -23,4 +23,5 @@ public class SharedLinkResponse {
     private Integer imageCount;
     private List<ImageResponse> images;
     private List<String> imageUrls;
+    private List<String> thumbnailUrls;
 }
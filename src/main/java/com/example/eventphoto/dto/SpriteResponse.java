@@ -0,0 +1,26 @@
+package com.example.eventphoto.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A contact sheet of thumbnails plus the manifest locating each image in it. Tiles are square
+ * cells of {@code tileSize}; each image is centred in its cell at its own aspect ratio.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpriteResponse {
+    private String spriteKey;
+    private String spriteUrl;
+    private int width;
+    private int height;
+    private int tileSize;
+    private int columns;
+    private List<SpriteTile> tiles;
+}
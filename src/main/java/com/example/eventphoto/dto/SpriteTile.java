@@ -0,0 +1,21 @@
+package com.example.eventphoto.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Where one image sits inside a sprite, in sprite pixels.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpriteTile {
+    private Long imageId;
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+}
@@ -0,0 +1,20 @@
+package com.example.eventphoto.dto;
+
+import com.example.eventphoto.model.UploadItemStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadFileResult {
+    private Integer index;
+    private String originalFileName;
+    private UploadItemStatus status;
+    private String message;
+    private Long imageId;
+    private ImageResponse image;
+}
@@ -0,0 +1,24 @@
+package com.example.eventphoto.dto;
+
+import com.example.eventphoto.model.UploadJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadJobResponse {
+    private String jobId;
+    private Long eventId;
+    private UploadJobStatus status;
+    private Integer totalFiles;
+    private Integer processedFiles;
+    private LocalDateTime createdAt;
+    private List<UploadFileResult> items;
+}
@@ -16,6 +16,13 @@
 @Slf4j
 public class GlobalExceptionHandler {
 
+    @ExceptionHandler(UploadOffsetConflictException.class)
+    public ResponseEntity<ApiResponse<Void>> handleOffsetConflict(UploadOffsetConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header("Upload-Offset", String.valueOf(e.getExpectedOffset()))
+                .body(ApiResponse.error(e.getMessage()));
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ApiResponse<Void>> handleRuntime(RuntimeException e) {
         log.warn("Runtime exception: {}", e.getMessage());
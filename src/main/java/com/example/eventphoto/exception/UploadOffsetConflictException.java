@@ -0,0 +1,17 @@
+package com.example.eventphoto.exception;
+
+import lombok.Getter;
+
+/**
+ * A resumable upload chunk did not start at the offset the server has recorded.
+ */
+@Getter
+public class UploadOffsetConflictException extends RuntimeException {
+
+    private final long expectedOffset;
+
+    public UploadOffsetConflictException(long expectedOffset) {
+        super("Chunk must start at offset " + expectedOffset);
+        this.expectedOffset = expectedOffset;
+    }
+}
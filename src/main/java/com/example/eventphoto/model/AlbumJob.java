@@ -0,0 +1,57 @@
+package com.example.eventphoto.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "album_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AlbumJob {
+
+    /** Hash of the image set and layout, also naming the stored PDF. */
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "event_id", nullable = false)
+    private Event event;
+
+    /** Comma-separated, ascending: the album's pages in order. */
+    @Column(name = "image_ids", nullable = false, columnDefinition = "TEXT")
+    private String imageIds;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private AlbumJobStatus status = AlbumJobStatus.QUEUED;
+
+    @Column(length = 255)
+    private String message;
+
+    @Version
+    private Long version;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
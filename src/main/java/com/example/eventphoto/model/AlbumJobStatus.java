@@ -0,0 +1,5 @@
+package com.example.eventphoto.model;
+
+public enum AlbumJobStatus {
+    QUEUED, PROCESSING, COMPLETED, FAILED
+}
@@ -0,0 +1,80 @@
+package com.example.eventphoto.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "chunked_uploads")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChunkedUpload {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "event_id", nullable = false)
+    private Event event;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "guest_id", nullable = false)
+    private Guest guest;
+
+    @Column(name = "storage_key", nullable = false, length = 500)
+    private String storageKey;
+
+    @Column(name = "storage_upload_id", nullable = false, length = 1024)
+    private String storageUploadId;
+
+    @Column(name = "original_file_name", length = 255)
+    private String originalFileName;
+
+    @Column(name = "content_type", length = 50)
+    private String contentType;
+
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+
+    @Column(name = "received_bytes", nullable = false)
+    @Builder.Default
+    private Long receivedBytes = 0L;
+
+    @Column(name = "part_count", nullable = false)
+    @Builder.Default
+    private Integer partCount = 0;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private ChunkedUploadStatus status = ChunkedUploadStatus.IN_PROGRESS;
+
+    @Version
+    private Long version;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public boolean isFullyReceived() {
+        return receivedBytes.equals(totalSize);
+    }
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
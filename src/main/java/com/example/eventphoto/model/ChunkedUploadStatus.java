@@ -0,0 +1,5 @@
+package com.example.eventphoto.model;
+
+public enum ChunkedUploadStatus {
+    IN_PROGRESS, COMPLETED, ABORTED
+}
@@ -19,7 +19,8 @@
 public class Event {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "events_seq")
+    @SequenceGenerator(name = "events_seq", sequenceName = "events_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "event_code", nullable = false, unique = true, length = 50)
@@ -66,10 +67,32 @@ public class Event {
     @JoinColumn(name = "customer_id", nullable = false)
     private Customer customer;
 
+    /** Ingest downscaling policy; null limits mean originals are stored as uploaded. */
+    @Column(name = "max_megapixels")
+    private Double maxMegapixels;
+
+    @Column(name = "max_long_edge")
+    private Integer maxLongEdge;
+
+    /** JPEG quality (percent) for re-encoded uploads. */
+    @Column(name = "downscale_quality")
+    private Integer downscaleQuality;
+
+    /** Keep the untouched original of downscaled uploads in archive storage. */
+    @Column(name = "keep_originals")
+    private Boolean keepOriginals;
+
     @Column(name = "is_active", nullable = false)
     @Builder.Default
     private Boolean isActive = true;
 
+    /** Storage key of the published gallery snapshot; only written by GalleryPublishService's queries. */
+    @Column(name = "published_gallery_key", length = 300, insertable = false, updatable = false)
+    private String publishedGalleryKey;
+
+    @Column(name = "published_at", insertable = false, updatable = false)
+    private LocalDateTime publishedAt;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -0,0 +1,5 @@
+package com.example.eventphoto.model;
+
+public enum EventArchiveStatus {
+    NONE, BUILDING, READY, STALE, FAILED
+}
@@ -17,7 +17,8 @@
 public class Guest {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "guests_seq")
+    @SequenceGenerator(name = "guests_seq", sequenceName = "guests_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 100)
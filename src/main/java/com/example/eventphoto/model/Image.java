@@ -6,7 +6,10 @@
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "images")
+@Table(name = "images", indexes = {
+        @Index(name = "idx_images_event_guest", columnList = "event_id, guest_id"),
+        @Index(name = "idx_images_event_phash", columnList = "event_id, phash")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -15,7 +18,8 @@
 public class Image {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "images_seq")
+    @SequenceGenerator(name = "images_seq", sequenceName = "images_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "file_name", nullable = false, length = 255)
@@ -30,14 +34,49 @@ public class Image {
     @Column(name = "storage_url", nullable = false, length = 1000)
     private String storageUrl;
 
+    /** Untouched upload in archive storage when ingest downscaled it; null otherwise. */
+    @Column(name = "original_key", length = 500)
+    private String originalKey;
+
+    @Column(name = "thumbnail_key", length = 500)
+    private String thumbnailKey;
+
+    @Column(name = "preview_key", length = 500)
+    private String previewKey;
+
+    /** Display width/height in pixels (after EXIF orientation); null when undecodable. */
+    @Column(name = "width")
+    private Integer width;
+
+    @Column(name = "height")
+    private Integer height;
+
+    /** BlurHash placeholder shown while the thumbnail loads. */
+    @Column(name = "blur_hash", length = 64)
+    private String blurHash;
+
     @Column(name = "file_size_mb")
     private Double fileSizeMb;
 
     @Column(name = "content_type", length = 50)
     private String contentType;
 
-    @Column(name = "perceptual_hash", length = 100)
-    private String perceptualHash;
+    @Column(name = "file_size_bytes")
+    private Long fileSizeBytes;
+
+    @Column(name = "checksum_sha256", length = 64)
+    private String checksumSha256;
+
+    @Column(name = "crc32")
+    private Long crc32;
+
+    /** 64-bit pHash bits; compared by Hamming distance, in memory or in SQL. */
+    @Column(name = "phash")
+    private Long perceptualHash;
+
+    /** 64-bit difference hash, the cheap prefilter in front of pHash. */
+    @Column(name = "dhash")
+    private Long differenceHash;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "event_id", nullable = false)
@@ -47,6 +47,10 @@ public class SharedLink {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    /** Storage key of the published snapshot; only written by GalleryPublishService's queries. */
+    @Column(name = "published_key", length = 300, insertable = false, updatable = false)
+    private String publishedKey;
+
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "shared_link_images",
             joinColumns = @JoinColumn(name = "shared_link_id"),
@@ -0,0 +1,5 @@
+package com.example.eventphoto.model;
+
+public enum UploadItemStatus {
+    PENDING, UPLOADED, DUPLICATE, REJECTED, FAILED
+}
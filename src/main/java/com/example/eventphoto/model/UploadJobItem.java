@@ -0,0 +1,46 @@
+package com.example.eventphoto.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "upload_job_items")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadJobItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "upload_job_items_seq")
+    @SequenceGenerator(name = "upload_job_items_seq", sequenceName = "upload_job_items_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "job_id", nullable = false)
+    private UploadJob job;
+
+    @Column(nullable = false)
+    private Integer position;
+
+    @Column(name = "original_file_name", length = 255)
+    private String originalFileName;
+
+    @Column(name = "content_type", length = 50)
+    private String contentType;
+
+    @Column(name = "staging_key", nullable = false, length = 500)
+    private String stagingKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private UploadItemStatus status = UploadItemStatus.PENDING;
+
+    @Column(name = "image_id")
+    private Long imageId;
+
+    @Column(length = 255)
+    private String message;
+}
@@ -0,0 +1,5 @@
+package com.example.eventphoto.model;
+
+public enum UploadJobStatus {
+    QUEUED, PROCESSING, COMPLETED, FAILED
+}
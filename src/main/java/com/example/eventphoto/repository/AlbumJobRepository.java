@@ -0,0 +1,35 @@
+package com.example.eventphoto.repository;
+
+import com.example.eventphoto.model.AlbumJob;
+import com.example.eventphoto.model.AlbumJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface AlbumJobRepository extends JpaRepository<AlbumJob, String> {
+    Optional<AlbumJob> findByIdAndEventId(String id, Long eventId);
+    List<AlbumJob> findByStatusIn(Collection<AlbumJobStatus> statuses);
+
+    @Modifying
+    @Transactional
+    @Query("delete from AlbumJob j where j.status in :statuses and j.updatedAt < :cutoff")
+    int deleteByStatusInAndUpdatedAtBefore(@Param("statuses") Collection<AlbumJobStatus> statuses,
+                                           @Param("cutoff") LocalDateTime cutoff);
+
+    /** Fail jobs that have not moved since cutoff: the node running them is gone. */
+    @Modifying
+    @Transactional
+    @Query("update AlbumJob j set j.status = com.example.eventphoto.model.AlbumJobStatus.FAILED, j.message = :message, " +
+            "j.updatedAt = CURRENT_TIMESTAMP, j.version = j.version + 1 " +
+            "where j.status in :statuses and j.updatedAt < :cutoff")
+    int failByStatusInAndUpdatedAtBefore(@Param("statuses") Collection<AlbumJobStatus> statuses,
+                                         @Param("cutoff") LocalDateTime cutoff,
+                                         @Param("message") String message);
+}
@@ -0,0 +1,14 @@
+package com.example.eventphoto.repository;
+
+import com.example.eventphoto.model.ChunkedUpload;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ChunkedUploadRepository extends JpaRepository<ChunkedUpload, String> {
+    Optional<ChunkedUpload> findByIdAndGuestId(String id, Long guestId);
+    List<ChunkedUpload> findByUpdatedAtBeforeOrderByUpdatedAtAsc(LocalDateTime cutoff, Pageable pageable);
+}
@@ -2,7 +2,12 @@
 
 import com.example.eventphoto.model.Event;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,4 +15,20 @@ public interface EventRepository extends JpaRepository<Event, Long> {
     Optional<Event> findByEventCode(String eventCode);
     List<Event> findByCustomerIdOrderByCreatedAtDesc(Long customerId);
     boolean existsByEventCode(String eventCode);
+    List<Event> findByIsActiveTrueAndQrValidUntilBefore(LocalDateTime cutoff);
+    List<Event> findByIsActiveFalseAndPublishedGalleryKeyIsNotNull();
+
+    @Query("select e.publishedGalleryKey from Event e where e.id = :id")
+    Optional<String> findPublishedGalleryKey(@Param("id") Long id);
+
+    /**
+     * Point the event at a new gallery snapshot (or none) if it still points at previousKey ("" for
+     * none); returns the number of rows changed.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Event e set e.publishedGalleryKey = :key, e.publishedAt = :publishedAt "
+            + "where e.id = :id and coalesce(e.publishedGalleryKey, '') = :previousKey")
+    int swapPublishedGallery(@Param("id") Long id, @Param("previousKey") String previousKey,
+                             @Param("key") String key, @Param("publishedAt") LocalDateTime publishedAt);
 }
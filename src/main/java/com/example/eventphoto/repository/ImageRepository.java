@@ -1,7 +1,12 @@
 package com.example.eventphoto.repository;
 
 import com.example.eventphoto.model.Image;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -10,5 +15,39 @@ public interface ImageRepository extends JpaRepository<Image, Long> {
     List<Image> findByEventId(Long eventId);
     List<Image> findByEventIdAndGuestId(Long eventId, Long guestId);
     List<Image> findByIdIn(List<Long> ids);
-    Optional<Image> findByEventIdAndGuestIdAndPerceptualHash(Long eventId, Long guestId, String hash);
+    long countByEventIdAndIdIn(Long eventId, List<Long> ids);
+
+    @Query("select i.id from Image i where i.event.id = :eventId")
+    List<Long> findIdsByEventId(@Param("eventId") Long eventId);
+    Optional<Image> findFirstByEventIdAndGuestIdAndPerceptualHash(Long eventId, Long guestId, Long hash);
+    boolean existsByStorageKey(String storageKey);
+    List<Image> findByThumbnailKeyIsNullAndIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    /** Images with real renditions but no placeholder yet (undecodable ones point at the original). */
+    @Query("select i from Image i where i.id > :afterId and i.blurHash is null and i.thumbnailKey is not null " +
+            "and i.thumbnailKey <> i.storageKey order by i.id asc")
+    List<Image> findMissingPlaceholders(@Param("afterId") Long afterId, Pageable pageable);
+
+    /** Rows of [image id, guest id, pHash, dHash] for the dedup index. */
+    @Query("select i.id, i.guest.id, i.perceptualHash, i.differenceHash from Image i " +
+            "where i.event.id = :eventId and (i.perceptualHash is not null or i.differenceHash is not null)")
+    List<Object[]> findHashesByEventId(@Param("eventId") Long eventId);
+
+    /**
+     * Event-wide near-duplicate filter with Hamming distances computed by Postgres (14+): rows are
+     * compared on pHash when both sides have one ({@code hasPHash}), otherwise on dHash. Rows are
+     * (id, guest id, pHash); a dHash match is only a candidate, to be confirmed on the pHash.
+     */
+    @Query(value = "SELECT i.id, i.guest_id, i.phash FROM images i WHERE i.event_id = :eventId AND CASE " +
+            "WHEN :hasPHash AND i.phash IS NOT NULL THEN bit_count(CAST(i.phash # :pHash AS bit(64))) <= :maxPBits " +
+            "WHEN :hasDHash AND i.dhash IS NOT NULL THEN bit_count(CAST(i.dhash # :dHash AS bit(64))) <= :maxDBits " +
+            "ELSE false END ORDER BY i.id", nativeQuery = true)
+    List<Object[]> findCandidatesWithinHammingDistance(@Param("eventId") Long eventId,
+                                                       @Param("hasPHash") boolean hasPHash, @Param("pHash") long pHash, @Param("maxPBits") int maxPBits,
+                                                       @Param("hasDHash") boolean hasDHash, @Param("dHash") long dHash, @Param("maxDBits") int maxDBits);
+
+    @Transactional
+    @Modifying
+    @Query("update Image i set i.perceptualHash = :hash where i.id = :id")
+    void updatePerceptualHash(@Param("id") Long id, @Param("hash") Long hash);
 }
@@ -2,7 +2,12 @@
 
 import com.example.eventphoto.model.SharedLink;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 import java.util.List;
@@ -10,4 +15,22 @@
 public interface SharedLinkRepository extends JpaRepository<SharedLink, Long> {
     Optional<SharedLink> findByShareCode(String shareCode);
     List<SharedLink> findByCustomerId(Long customerId);
+    List<SharedLink> findByEventIdAndIsActiveTrueAndAccessPasswordHashIsNull(Long eventId);
+    List<SharedLink> findByEventIdAndPublishedKeyIsNotNull(Long eventId);
+
+    /** The link's published snapshot, unless the link has expired since. */
+    @Query("select l.publishedKey from SharedLink l where l.shareCode = :code "
+            + "and (l.expiresAt is null or l.expiresAt > :now)")
+    Optional<String> findPublishedKey(@Param("code") String shareCode, @Param("now") LocalDateTime now);
+
+    /**
+     * Point the link at a new snapshot (or none) if it still points at previousKey ("" for none);
+     * returns the number of rows changed.
+     */
+    @Transactional
+    @Modifying
+    @Query("update SharedLink l set l.publishedKey = :key "
+            + "where l.shareCode = :code and coalesce(l.publishedKey, '') = :previousKey")
+    int swapPublishedKey(@Param("code") String shareCode, @Param("previousKey") String previousKey,
+                         @Param("key") String key);
 }
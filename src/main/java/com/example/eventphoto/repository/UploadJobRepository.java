@@ -0,0 +1,15 @@
+package com.example.eventphoto.repository;
+
+import com.example.eventphoto.model.UploadJob;
+import com.example.eventphoto.model.UploadJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface UploadJobRepository extends JpaRepository<UploadJob, String> {
+    Optional<UploadJob> findByIdAndGuestId(String id, Long guestId);
+    List<UploadJob> findByStatusIn(Collection<UploadJobStatus> statuses);
+    List<UploadJob> findTop5ByEventIdAndGuestIdOrderByCreatedAtDesc(Long eventId, Long guestId);
+}
@@ -0,0 +1,63 @@
+package com.example.eventphoto.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HMAC-SHA256 signatures for expiring storage URLs served by this app (the local-storage
+ * counterpart of S3 presigned URLs).
+ */
+@Component
+public class UrlSigner {
+
+    @Value("${storage.signing-secret:${jwt.secret:eventPhotoAppSecretKeyForJWTTokenGeneration2024Minimum32Characters}}")
+    private String secret;
+
+    public String sign(String method, String storageKey, long expiresEpochSeconds) {
+        return sign(newMac(), method, storageKey, expiresEpochSeconds);
+    }
+
+    /**
+     * Sign many keys with the same method and expiry, reusing one initialised Mac.
+     */
+    public Map<String, String> signAll(String method, Collection<String> storageKeys, long expiresEpochSeconds) {
+        Mac mac = newMac();
+        Map<String, String> signatures = new LinkedHashMap<>();
+        for (String key : storageKeys) {
+            signatures.put(key, sign(mac, method, key, expiresEpochSeconds));
+        }
+        return signatures;
+    }
+
+    public boolean verify(String method, String storageKey, Long expiresEpochSeconds, String signature) {
+        if (storageKey == null || expiresEpochSeconds == null || signature == null) return false;
+        if (expiresEpochSeconds < System.currentTimeMillis() / 1000) return false;
+        byte[] expected = sign(method, storageKey, expiresEpochSeconds).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String sign(Mac mac, String method, String storageKey, long expiresEpochSeconds) {
+        byte[] sig = mac.doFinal((method + "\n" + storageKey + "\n" + expiresEpochSeconds).getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sig);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.eventphoto.service;
+
+import com.example.eventphoto.dto.AlbumJobResponse;
+import com.example.eventphoto.model.AlbumJob;
+import com.example.eventphoto.model.AlbumJobStatus;
+import com.example.eventphoto.model.Image;
+import com.example.eventphoto.repository.AlbumJobRepository;
+import com.example.eventphoto.repository.EventRepository;
+import com.example.eventphoto.repository.ImageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * Album PDFs as background jobs. The job id is a hash of the sorted image ids and the album layout,
+ * and the finished PDF is stored under {@code albums/{eventId}/{jobId}.pdf}: submitting a selection
+ * that was already rendered completes immediately, identical submissions while one is running join
+ * it, and every download is a single storage read (a redirect to a signed URL). Job status lives in
+ * {@code album_jobs}, so any node can answer a poll, and jobs interrupted by a restart are picked up
+ * again; finished rows are dropped after {@code album.jobs.expire-hours}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlbumJobService {
+
+    private final AlbumJobRepository albumJobRepository;
+    private final EventRepository eventRepository;
+    private final ImageRepository imageRepository;
+    private final AlbumPdfService albumPdfService;
+    private final StorageService storageService;
+    private final SignedUrlService signedUrlService;
+    private final PlatformTransactionManager transactionManager;
+    @Qualifier("uploadJobExecutor")
+    private final ExecutorService uploadJobExecutor;
+
+    @Value("${album.jobs.part-size:8388608}")
+    private int partSize;
+
+    @Value("${album.jobs.max-images:1000}")
+    private int maxImages;
+
+    @Value("${album.jobs.expire-hours:24}")
+    private long expireHours;
+
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Queue an album of these images of the event (pages in image id order), unless it is already
+     * stored or being generated.
+     */
+    public AlbumJobResponse submit(Long eventId, List<Long> imageIds) throws IOException {
+        if (imageIds == null || imageIds.isEmpty()) {
+            throw new RuntimeException("No images selected");
+        }
+        List<Long> ids = new ArrayList<>(new TreeSet<>(imageIds));
+        if (ids.size() > maxImages) {
+            throw new RuntimeException("At most " + maxImages + " images per album");
+        }
+        List<Image> images = imageRepository.findByIdIn(ids);
+        if (images.size() != ids.size() || images.stream().anyMatch(img -> !img.getEvent().getId().equals(eventId))) {
+            throw new RuntimeException("Image not found");
+        }
+        String jobId = sha256(albumPdfService.layoutSignature() + "|"
+                + ids.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        String key = resultKey(eventId, jobId);
+        if (storageService.stat(key).isPresent()) {
+            return status(eventId, jobId);
+        }
+        if (claim(eventId, jobId, ids)) {
+            enqueue(jobId);
+        }
+        return status(eventId, jobId);
+    }
+
+    /**
+     * Record the job as queued unless it is already queued or running (here or on another node).
+     * A failed job, or a completed one whose PDF is gone, is queued again.
+     */
+    private boolean claim(Long eventId, String jobId, List<Long> ids) {
+        try {
+            return Boolean.TRUE.equals(new TransactionTemplate(transactionManager).execute(tx -> {
+                AlbumJob job = albumJobRepository.findById(jobId).orElse(null);
+                if (job == null) {
+                    albumJobRepository.saveAndFlush(AlbumJob.builder()
+                            .id(jobId)
+                            .event(eventRepository.getReferenceById(eventId))
+                            .imageIds(ids.stream().map(String::valueOf).collect(Collectors.joining(",")))
+                            .build());
+                    return true;
+                }
+                if (job.getStatus() == AlbumJobStatus.QUEUED || job.getStatus() == AlbumJobStatus.PROCESSING) {
+                    return false;
+                }
+                job.setStatus(AlbumJobStatus.QUEUED);
+                job.setMessage(null);
+                return true;
+            }));
+        } catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+            // The same album was submitted concurrently and that submission queued it.
+            return false;
+        }
+    }
+
+    public AlbumJobResponse status(Long eventId, String jobId) throws IOException {
+        String key = resultKey(eventId, jobId);
+        AlbumJobResponse.AlbumJobResponseBuilder response = AlbumJobResponse.builder().jobId(jobId).eventId(eventId);
+        AlbumJob job = albumJobRepository.findByIdAndEventId(jobId, eventId).orElse(null);
+        if (job != null && job.getStatus() != AlbumJobStatus.COMPLETED) {
+            return response.status(job.getStatus()).message(job.getMessage()).build();
+        }
+        Optional<StoredObjectInfo> stored = storageService.stat(key);
+        if (stored.isEmpty()) {
+            throw new RuntimeException("Album job not found");
+        }
+        return response.status(AlbumJobStatus.COMPLETED)
+                .sizeBytes(stored.get().getSize())
+                .downloadUrl(signedUrlService.url(key))
+                .build();
+    }
+
+    /**
+     * Signed URL of the finished album.
+     */
+    public String downloadUrl(Long eventId, String jobId) throws IOException {
+        AlbumJobResponse job = status(eventId, jobId);
+        if (job.getStatus() != AlbumJobStatus.COMPLETED) {
+            throw new RuntimeException("Album is not ready");
+        }
+        return job.getDownloadUrl();
+    }
+
+    /**
+     * The PDFs are in storage, so jobs interrupted by a restart are generated again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingJobs() {
+        List<AlbumJob> jobs = albumJobRepository.findByStatusIn(List.of(AlbumJobStatus.QUEUED, AlbumJobStatus.PROCESSING));
+        if (!jobs.isEmpty()) {
+            log.info("Resuming {} pending album job(s)", jobs.size());
+        }
+        jobs.forEach(job -> enqueue(job.getId()));
+    }
+
+    /**
+     * Drop finished job rows after {@code album.jobs.expire-hours} (a stored PDF still answers as
+     * COMPLETED), and fail jobs that have not moved for that long.
+     */
+    @Scheduled(initialDelayString = "${album.jobs.sweep-ms:3600000}",
+            fixedDelayString = "${album.jobs.sweep-ms:3600000}")
+    public void expireJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(expireHours);
+        int deleted = albumJobRepository.deleteByStatusInAndUpdatedAtBefore(
+                List.of(AlbumJobStatus.COMPLETED, AlbumJobStatus.FAILED), cutoff);
+        int failed = albumJobRepository.failByStatusInAndUpdatedAtBefore(
+                List.of(AlbumJobStatus.QUEUED, AlbumJobStatus.PROCESSING), cutoff, "Interrupted");
+        if (deleted > 0 || failed > 0) {
+            log.info("Expired {} finished and {} stuck album jobs idle since before {}", deleted, failed, cutoff);
+        }
+    }
+
+    private void enqueue(String jobId) {
+        if (!runningJobs.add(jobId)) return;
+        uploadJobExecutor.execute(() -> {
+            try {
+                generate(jobId);
+            } finally {
+                runningJobs.remove(jobId);
+            }
+        });
+    }
+
+    private void generate(String jobId) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        AlbumJob job;
+        try {
+            job = tx.execute(status -> albumJobRepository.findById(jobId).map(j -> {
+                j.setStatus(AlbumJobStatus.PROCESSING);
+                return j;
+            }).orElse(null));
+        } catch (OptimisticLockingFailureException e) {
+            log.debug("Album job {} changed meanwhile, leaving it", jobId);
+            return;
+        }
+        if (job == null) return;
+        String key = resultKey(job.getEvent().getId(), jobId);
+        List<Long> ids = Arrays.stream(job.getImageIds().split(",")).map(Long::valueOf).collect(Collectors.toList());
+        MultipartObjectWriter out = new MultipartObjectWriter(storageService, key, "application/pdf", partSize);
+        try {
+            albumPdfService.writePdf(ids, out);
+            out.finish();
+            log.info("Album {} stored ({} images, {} bytes)", key, ids.size(), out.getWritten());
+            finish(jobId, AlbumJobStatus.COMPLETED, null);
+        } catch (Exception e) {
+            out.abort();
+            log.warn("Could not generate album {}", key, e);
+            finish(jobId, AlbumJobStatus.FAILED, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private void finish(String jobId, AlbumJobStatus status, String message) {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(tx ->
+                    albumJobRepository.findById(jobId).ifPresent(job -> {
+                        job.setStatus(status);
+                        job.setMessage(message != null && message.length() > 255 ? message.substring(0, 255) : message);
+                    }));
+        } catch (RuntimeException e) {
+            log.warn("Could not record status {} of album job {}", status, jobId, e);
+        }
+    }
+
+    private static String resultKey(Long eventId, String jobId) {
+        if (jobId == null || !jobId.matches("[0-9a-f]{64}")) {
+            throw new RuntimeException("Album job not found");
+        }
+        return "albums/" + eventId + "/" + jobId + ".pdf";
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
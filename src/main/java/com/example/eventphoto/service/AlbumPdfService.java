@@ -3,26 +3,64 @@
 import com.example.eventphoto.model.Image;
 import com.example.eventphoto.repository.ImageRepository;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * PDF albums, one image per A4 page. Originals are fetched on the storage I/O pool and downscaled to
+ * {@code album.dpi} for the page's image box on the CPU pool, a window ahead of the page being added
+ * bounded by count and by {@code album.prefetch-bytes} of originals, so only a few images are alive
+ * at once; pages are appended in request order. Originals are read from the storage backend directly:
+ * an album touches each once, so they would only push hot objects out of the read cache.
+ * PDFBox keeps the document's streams in a scratch file beyond {@code album.max-main-memory-bytes},
+ * and the finished PDF is written straight to the caller's stream.
+ */
 @Service
 @RequiredArgsConstructor
-@Slf4j
 public class AlbumPdfService {
 
     private final ImageRepository imageRepository;
-    private final StorageService storageService;
+    @Qualifier("storageBackend")
+    private final StorageService storageBackend;
+    @Qualifier("imageProcessingExecutor")
+    private final ExecutorService imageProcessingExecutor;
+    @Qualifier("storageIoExecutor")
+    private final ExecutorService storageIoExecutor;
+
+    @Value("${album.dpi:200}")
+    private int dpi;
+
+    @Value("${album.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${album.max-main-memory-bytes:16777216}")
+    private long maxMainMemoryBytes;
+
+    @Value("${album.prefetch-bytes:67108864}")
+    private long prefetchBytes;
 
     private static final float PAGE_WIDTH = 595;
     private static final float PAGE_HEIGHT = 842;
@@ -31,40 +69,116 @@ public class AlbumPdfService {
     private static final float MAX_IMAGE_HEIGHT = PAGE_HEIGHT - 2 * MARGIN;
 
     /**
-     * Generate a PDF album from the given image IDs. Caller must ensure customer owns the event.
+     * Everything besides the image set that affects the PDF's bytes, for keying stored albums.
+     */
+    public String layoutSignature() {
+        return "a4-single|" + PAGE_WIDTH + "x" + PAGE_HEIGHT + "|m" + MARGIN + "|dpi" + dpi + "|q" + jpegQuality;
+    }
+
+    /**
+     * Write a PDF album of the given image IDs, in that order, to out. Caller must ensure customer
+     * owns the event. Fails if any of the images is gone or cannot be read or decoded, so an album
+     * that is written always has every page.
      */
-    public byte[] generatePdf(List<Long> imageIds) throws IOException {
-        List<Image> images = imageRepository.findByIdIn(imageIds);
-        if (images.isEmpty()) {
+    public void writePdf(List<Long> imageIds, OutputStream out) throws IOException {
+        if (imageIds.isEmpty()) {
             throw new RuntimeException("No images selected");
         }
-        try (PDDocument document = new PDDocument()) {
-            for (Image img : images) {
-                byte[] bytes = storageService.getFileBytes(img.getStorageKey());
-                if (bytes == null || bytes.length == 0) continue;
-                PDPage page = new PDPage(new PDRectangle(PAGE_WIDTH, PAGE_HEIGHT));
-                document.addPage(page);
-                try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-                    PDImageXObject pdImage;
-                    String contentType = img.getContentType();
-                    if (contentType != null && contentType.toLowerCase().contains("png")) {
-                        pdImage = org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory.createFromByteArray(document, bytes, img.getFileName());
-                    } else {
-                        pdImage = JPEGFactory.createFromByteArray(document, bytes);
-                    }
-                    float imgWidth = pdImage.getWidth();
-                    float imgHeight = pdImage.getHeight();
-                    float scale = Math.min(MAX_IMAGE_WIDTH / imgWidth, MAX_IMAGE_HEIGHT / imgHeight);
-                    float drawWidth = imgWidth * scale;
-                    float drawHeight = imgHeight * scale;
-                    float x = MARGIN + (MAX_IMAGE_WIDTH - drawWidth) / 2;
-                    float y = PAGE_HEIGHT - MARGIN - drawHeight;
-                    contentStream.drawImage(pdImage, x, y, drawWidth, drawHeight);
+        List<Image> images = inRequestOrder(imageIds);
+        int boxWidth = Math.round(MAX_IMAGE_WIDTH / 72f * dpi);
+        int boxHeight = Math.round(MAX_IMAGE_HEIGHT / 72f * dpi);
+        int window = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        Deque<Pending> pending = new ArrayDeque<>();
+        long reserved = 0;
+        int next = 0;
+        try (PDDocument document = new PDDocument(MemoryUsageSetting.setupMixed(maxMainMemoryBytes).streamCache)) {
+            for (int i = 0; i < images.size(); i++) {
+                // Top up the window while the originals in flight fit the byte budget; the next page
+                // is always fetched, however large. Unknown sizes take the whole budget.
+                while (next < images.size() && next < i + window) {
+                    Image img = images.get(next);
+                    long size = img.getFileSizeBytes() != null ? img.getFileSizeBytes() : prefetchBytes;
+                    if (reserved + size > prefetchBytes && !pending.isEmpty()) break;
+                    reserved += size;
+                    next++;
+                    pending.add(new Pending(size, CompletableFuture
+                            .supplyAsync(() -> read(img), storageIoExecutor)
+                            .thenApplyAsync(bytes -> render(img, bytes, boxWidth, boxHeight), imageProcessingExecutor)));
                 }
+                Pending page = pending.poll();
+                reserved -= page.reserved;
+                addPage(document, join(page.jpeg));
+            }
+            document.save(out);
+        } finally {
+            pending.forEach(p -> p.jpeg.cancel(false));
+        }
+    }
+
+    private void addPage(PDDocument document, byte[] jpeg) throws IOException {
+        PDPage page = new PDPage(new PDRectangle(PAGE_WIDTH, PAGE_HEIGHT));
+        document.addPage(page);
+        PDImageXObject pdImage = JPEGFactory.createFromByteArray(document, jpeg);
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            float imgWidth = pdImage.getWidth();
+            float imgHeight = pdImage.getHeight();
+            float scale = Math.min(MAX_IMAGE_WIDTH / imgWidth, MAX_IMAGE_HEIGHT / imgHeight);
+            float drawWidth = imgWidth * scale;
+            float drawHeight = imgHeight * scale;
+            float x = MARGIN + (MAX_IMAGE_WIDTH - drawWidth) / 2;
+            float y = PAGE_HEIGHT - MARGIN - drawHeight;
+            contentStream.drawImage(pdImage, x, y, drawWidth, drawHeight);
+        }
+    }
+
+    private byte[] read(Image img) {
+        try {
+            return storageBackend.getFileBytes(img.getStorageKey());
+        } catch (IOException e) {
+            throw new CompletionException(new IOException("Could not read image " + img.getId() + ": " + e.getMessage(), e));
+        }
+    }
+
+    /** Upright JPEG of the image fitting the page's image box at the album DPI. */
+    private byte[] render(Image img, byte[] bytes, int boxWidth, int boxHeight) {
+        try {
+            ImageAnalysis analysis = bytes.length > 0 ? ImageAnalysis.of(bytes) : null;
+            if (analysis == null) {
+                throw new IOException("Unsupported image format");
             }
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            document.save(baos);
-            return baos.toByteArray();
+            BufferedImage decoded = analysis.decodeForEdge(Math.max(boxWidth, boxHeight));
+            return RenditionService.encodeJpeg(RenditionService.scaleToBox(decoded, boxWidth, boxHeight), jpegQuality);
+        } catch (IOException e) {
+            throw new CompletionException(new IOException("Could not decode image " + img.getId() + ": " + e.getMessage(), e));
+        }
+    }
+
+    private List<Image> inRequestOrder(List<Long> imageIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(imageIds));
+        Map<Long, Image> byId = imageRepository.findByIdIn(ids).stream()
+                .collect(Collectors.toMap(Image::getId, Function.identity()));
+        if (byId.size() != ids.size()) {
+            throw new RuntimeException("Some of the selected images no longer exist");
+        }
+        return ids.stream().map(byId::get).collect(Collectors.toList());
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw e;
+        }
+    }
+
+    private static final class Pending {
+        private final long reserved;
+        private final CompletableFuture<byte[]> jpeg;
+
+        private Pending(long reserved, CompletableFuture<byte[]> jpeg) {
+            this.reserved = reserved;
+            this.jpeg = jpeg;
         }
     }
 }
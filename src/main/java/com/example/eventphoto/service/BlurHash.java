@@ -0,0 +1,109 @@
+package com.example.eventphoto.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * BlurHash encoder (https://blurha.sh): a ~30 character string that clients decode into a blurred
+ * placeholder while the real image loads. Callers should pass a small image (a few dozen pixels);
+ * the cost is pixels x components.
+ */
+public final class BlurHash {
+
+    private static final String CHARS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private BlurHash() {
+    }
+
+    public static String encode(BufferedImage image, int componentsX, int componentsY) {
+        if (componentsX < 1 || componentsX > 9 || componentsY < 1 || componentsY > 9) {
+            throw new IllegalArgumentException("BlurHash components must be between 1 and 9");
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int[] rgb = image.getRGB(0, 0, w, h, null, 0, w);
+        double[] linear = new double[w * h * 3];
+        for (int p = 0; p < rgb.length; p++) {
+            linear[p * 3] = toLinear((rgb[p] >> 16) & 0xFF);
+            linear[p * 3 + 1] = toLinear((rgb[p] >> 8) & 0xFF);
+            linear[p * 3 + 2] = toLinear(rgb[p] & 0xFF);
+        }
+
+        double[][] factors = new double[componentsX * componentsY][];
+        for (int j = 0; j < componentsY; j++) {
+            double[] cosY = cosines(j, h);
+            for (int i = 0; i < componentsX; i++) {
+                double[] cosX = cosines(i, w);
+                double r = 0, g = 0, b = 0;
+                for (int y = 0; y < h; y++) {
+                    for (int x = 0; x < w; x++) {
+                        double basis = cosX[x] * cosY[y];
+                        int p = (y * w + x) * 3;
+                        r += basis * linear[p];
+                        g += basis * linear[p + 1];
+                        b += basis * linear[p + 2];
+                    }
+                }
+                double scale = (i == 0 && j == 0 ? 1.0 : 2.0) / (w * h);
+                factors[j * componentsX + i] = new double[]{r * scale, g * scale, b * scale};
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        encode83(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+        double maximumValue = 1.0;
+        if (factors.length > 1) {
+            double actualMax = 0;
+            for (int k = 1; k < factors.length; k++) {
+                for (double v : factors[k]) actualMax = Math.max(actualMax, Math.abs(v));
+            }
+            int quantisedMax = (int) Math.max(0, Math.min(82, Math.floor(actualMax * 166 - 0.5)));
+            maximumValue = (quantisedMax + 1) / 166.0;
+            encode83(hash, quantisedMax, 1);
+        } else {
+            encode83(hash, 0, 1);
+        }
+        double[] dc = factors[0];
+        encode83(hash, (toSrgb(dc[0]) << 16) + (toSrgb(dc[1]) << 8) + toSrgb(dc[2]), 4);
+        for (int k = 1; k < factors.length; k++) {
+            double[] ac = factors[k];
+            encode83(hash, quantiseAc(ac[0], maximumValue) * 19 * 19
+                    + quantiseAc(ac[1], maximumValue) * 19
+                    + quantiseAc(ac[2], maximumValue), 2);
+        }
+        return hash.toString();
+    }
+
+    private static double[] cosines(int component, int size) {
+        double[] cos = new double[size];
+        for (int k = 0; k < size; k++) {
+            cos[k] = Math.cos(Math.PI * component * k / size);
+        }
+        return cos;
+    }
+
+    private static int quantiseAc(double value, double maximumValue) {
+        double v = value / maximumValue;
+        double signPow = Math.copySign(Math.sqrt(Math.abs(v)), v);
+        return (int) Math.max(0, Math.min(18, Math.floor(signPow * 9 + 9.5)));
+    }
+
+    private static double toLinear(int value) {
+        double v = value / 255.0;
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static int toSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308 ? (int) (v * 12.92 * 255 + 0.5) : (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static void encode83(StringBuilder out, int value, int length) {
+        int divisor = 1;
+        for (int i = 1; i < length; i++) divisor *= 83;
+        for (int i = 0; i < length; i++) {
+            out.append(CHARS.charAt((value / divisor) % 83));
+            divisor /= 83;
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package com.example.eventphoto.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache in front of the real storage backend ({@code storageBackend}), so the photos
+ * everyone opens right after an event are fetched from disk/S3 once instead of per view.
+ * <ul>
+ *   <li>Byte-weighted LRU bounded by {@code storage.cache.max-bytes}; objects larger than
+ *   {@code storage.cache.max-object-bytes} are never cached.</li>
+ *   <li>Frequency admission: a key is only cached on its second miss within the doorkeeper window,
+ *   so one-pass readers (ZIP, PDF) do not flush the hot set. Streamed and ranged reads that are not
+ *   admitted go straight to the backend without buffering the object.</li>
+ *   <li>Optional off-heap storage in direct buffers ({@code storage.cache.off-heap}) to keep the
+ *   cached bytes out of the old generation.</li>
+ *   <li>Concurrent misses for the same key share one backend fetch.</li>
+ *   <li>Writes and deletes invalidate the key.</li>
+ * </ul>
+ */
+@Service
+@Primary
+public class CachingStorageService implements StorageService {
+
+    private static final int DOORKEEPER_SIZE = 20_000;
+
+    private final StorageService backend;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxObjectBytes;
+    private final boolean offHeap;
+
+    /** Access-ordered cached objects; guarded by {@code this}. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(512, 0.75f, true);
+    /** Keys seen missing once recently; guarded by {@code this}. */
+    private final LinkedHashMap<String, Boolean> doorkeeper = new LinkedHashMap<>(1024, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > DOORKEEPER_SIZE;
+        }
+    };
+    private long usedBytes;
+    private final Map<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+    /** Bumped on every invalidation so a load that raced with a write is not cached. */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CachingStorageService(@Qualifier("storageBackend") StorageService backend,
+                                 @Value("${storage.cache.enabled:true}") boolean enabled,
+                                 @Value("${storage.cache.max-bytes:268435456}") long maxBytes,
+                                 @Value("${storage.cache.max-object-bytes:16777216}") long maxObjectBytes,
+                                 @Value("${storage.cache.off-heap:false}") boolean offHeap) {
+        this.backend = backend;
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxObjectBytes = maxObjectBytes;
+        this.offHeap = offHeap;
+    }
+
+    @Override
+    public String uploadFile(MultipartFile file, String eventCode) throws IOException {
+        String key = backend.uploadFile(file, eventCode);
+        invalidate(key);
+        return key;
+    }
+
+    @Override
+    public void upload(String storageKey, InputStream content, String contentType) throws IOException {
+        try {
+            backend.upload(storageKey, content, contentType);
+        } finally {
+            invalidate(storageKey);
+        }
+    }
+
+    @Override
+    public void upload(String storageKey, byte[] content, String contentType) throws IOException {
+        try {
+            backend.upload(storageKey, content, contentType);
+        } finally {
+            invalidate(storageKey);
+        }
+    }
+
+    @Override
+    public void uploadArchive(String storageKey, byte[] content, String contentType) throws IOException {
+        try {
+            backend.uploadArchive(storageKey, content, contentType);
+        } finally {
+            invalidate(storageKey);
+        }
+    }
+
+    @Override
+    public boolean uploadIfMatch(String storageKey, byte[] content, String contentType, String expectedEtag) throws IOException {
+        try {
+            return backend.uploadIfMatch(storageKey, content, contentType, expectedEtag);
+        } finally {
+            invalidate(storageKey);
+        }
+    }
+
+    @Override
+    public List<String> listKeys(String prefix) throws IOException {
+        return backend.listKeys(prefix);
+    }
+
+    @Override
+    public void deleteAll(String prefix) throws IOException {
+        try {
+            backend.deleteAll(prefix);
+        } finally {
+            invalidatePrefix(prefix);
+        }
+    }
+
+    @Override
+    public void delete(String storageKey) throws IOException {
+        try {
+            backend.delete(storageKey);
+        } finally {
+            invalidate(storageKey);
+        }
+    }
+
+    @Override
+    public void deleteFile(String storageKey) throws IOException {
+        try {
+            backend.deleteFile(storageKey);
+        } finally {
+            invalidate(storageKey);
+        }
+    }
+
+    @Override
+    public String getPublicUrl(String storageKey) {
+        return backend.getPublicUrl(storageKey);
+    }
+
+    @Override
+    public String createDownloadUrl(String storageKey, Instant expiresAt) {
+        return backend.createDownloadUrl(storageKey, expiresAt);
+    }
+
+    @Override
+    public Duration maxDownloadUrlTtl() {
+        return backend.maxDownloadUrlTtl();
+    }
+
+    @Override
+    public Map<String, String> createDownloadUrls(Collection<String> storageKeys, Instant expiresAt) {
+        return backend.createDownloadUrls(storageKeys, expiresAt);
+    }
+
+    @Override
+    public InputStream getFileStream(String storageKey) throws IOException {
+        Entry entry = enabled ? cachedOrAdmitted(storageKey) : null;
+        if (entry == null) return backend.getFileStream(storageKey);
+        return new BufferInputStream(entry.data.duplicate());
+    }
+
+    @Override
+    public byte[] getFileBytes(String storageKey) throws IOException {
+        if (!enabled) return backend.getFileBytes(storageKey);
+        ByteBuffer data = load(storageKey).data.duplicate();
+        byte[] copy = new byte[data.remaining()];
+        data.get(copy);
+        return copy;
+    }
+
+    @Override
+    public InputStream getFileStream(String storageKey, long offset, long length) throws IOException {
+        Entry entry = enabled ? peek(storageKey) : null;
+        if (entry == null) return backend.getFileStream(storageKey, offset, length);
+        return new BufferInputStream(slice(entry.data, offset, length));
+    }
+
+    @Override
+    public void transferTo(String storageKey, long offset, long length, OutputStream out) throws IOException {
+        Entry entry = enabled ? cachedOrAdmitted(storageKey) : null;
+        if (entry == null) {
+            backend.transferTo(storageKey, offset, length, out);
+            return;
+        }
+        ByteBuffer slice = slice(entry.data, offset, length);
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (slice.hasRemaining()) {
+            channel.write(slice);
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String storageKey) {
+        return backend.localPath(storageKey);
+    }
+
+    @Override
+    public Optional<StoredObjectInfo> stat(String storageKey) throws IOException {
+        Entry entry = enabled ? peek(storageKey) : null;
+        if (entry != null && entry.info != null) return Optional.of(entry.info);
+        Optional<StoredObjectInfo> info = backend.stat(storageKey);
+        if (entry != null) entry.info = info.orElse(null);
+        return info;
+    }
+
+    @Override
+    public String createUploadUrl(String storageKey, String contentType, Duration ttl) {
+        return backend.createUploadUrl(storageKey, contentType, ttl);
+    }
+
+    @Override
+    public String createMultipartUpload(String storageKey, String contentType) throws IOException {
+        return backend.createMultipartUpload(storageKey, contentType);
+    }
+
+    @Override
+    public void uploadPart(String storageKey, String uploadId, int partNumber, byte[] content) throws IOException {
+        backend.uploadPart(storageKey, uploadId, partNumber, content);
+    }
+
+    @Override
+    public void completeMultipartUpload(String storageKey, String uploadId) throws IOException {
+        try {
+            backend.completeMultipartUpload(storageKey, uploadId);
+        } finally {
+            invalidate(storageKey);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String storageKey, String uploadId) throws IOException {
+        backend.abortMultipartUpload(storageKey, uploadId);
+    }
+
+    /**
+     * Counters for the admin endpoint.
+     */
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("offHeap", offHeap);
+        stats.put("entries", entries.size());
+        stats.put("usedBytes", usedBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("coalescedMisses", coalesced.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private synchronized Entry peek(String storageKey) {
+        return entries.get(storageKey);
+    }
+
+    /**
+     * For streaming readers: the cached entry, or a load that admits the object when this is a
+     * repeated miss and its size (by stat) fits {@code max-object-bytes}. Otherwise null, and the
+     * caller reads the backend directly; a first miss is only noted for admission.
+     */
+    private Entry cachedOrAdmitted(String storageKey) throws IOException {
+        Entry cached = peek(storageKey);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        if (inFlight.containsKey(storageKey) || !noteMiss(storageKey)) {
+            Optional<StoredObjectInfo> info = backend.stat(storageKey);
+            if (info.isPresent() && info.get().getSize() <= maxObjectBytes) return load(storageKey);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /** Record a miss in the doorkeeper; false when the key was already there. */
+    private synchronized boolean noteMiss(String storageKey) {
+        return doorkeeper.putIfAbsent(storageKey, Boolean.TRUE) == null;
+    }
+
+    /**
+     * Cached entry, or a single shared backend fetch on a miss. The fetched entry is only retained
+     * when admitted and not invalidated while loading.
+     */
+    private Entry load(String storageKey) throws IOException {
+        Entry cached = peek(storageKey);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = inFlight.putIfAbsent(storageKey, mine);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException io) throw io;
+                throw e;
+            }
+        }
+        misses.incrementAndGet();
+        long startGeneration = generation.get();
+        try {
+            byte[] bytes = backend.getFileBytes(storageKey);
+            Entry entry = new Entry(wrap(bytes));
+            if (bytes.length <= maxObjectBytes) {
+                admit(storageKey, entry, bytes.length, startGeneration);
+            }
+            mine.complete(entry);
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(storageKey, mine);
+        }
+    }
+
+    private synchronized void admit(String storageKey, Entry entry, long size, long startGeneration) {
+        if (generation.get() != startGeneration) return;
+        if (doorkeeper.remove(storageKey) == null) {
+            doorkeeper.put(storageKey, Boolean.TRUE);
+            return;
+        }
+        Entry previous = entries.put(storageKey, entry);
+        if (previous != null) usedBytes -= previous.data.capacity();
+        usedBytes += size;
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            usedBytes -= eldest.getValue().data.capacity();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void invalidate(String storageKey) {
+        if (!enabled || storageKey == null) return;
+        generation.incrementAndGet();
+        synchronized (this) {
+            Entry removed = entries.remove(storageKey);
+            if (removed != null) usedBytes -= removed.data.capacity();
+            doorkeeper.remove(storageKey);
+        }
+    }
+
+    private void invalidatePrefix(String prefix) {
+        if (!enabled) return;
+        generation.incrementAndGet();
+        synchronized (this) {
+            for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Entry> cached = it.next();
+                if (cached.getKey().startsWith(prefix)) {
+                    usedBytes -= cached.getValue().data.capacity();
+                    it.remove();
+                }
+            }
+            doorkeeper.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    private ByteBuffer wrap(byte[] bytes) {
+        if (!offHeap) return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        // Direct memory is released when the buffer is collected; size -XX:MaxDirectMemorySize to max-bytes.
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        return direct.asReadOnlyBuffer();
+    }
+
+    private static ByteBuffer slice(ByteBuffer data, long offset, long length) {
+        if (offset < 0 || length < 0 || offset + length > data.capacity()) {
+            throw new IllegalArgumentException("Range outside object");
+        }
+        return data.duplicate().position((int) offset).limit((int) (offset + length)).slice();
+    }
+
+    private static final class Entry {
+        private final ByteBuffer data;
+        private volatile StoredObjectInfo info;
+
+        private Entry(ByteBuffer data) {
+            this.data = data;
+        }
+    }
+
+    /** Stream over a private view of a cached buffer; nothing is copied up front. */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+    }
+}
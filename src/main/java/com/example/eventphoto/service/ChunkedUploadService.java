@@ -0,0 +1,270 @@
+package com.example.eventphoto.service;
+
+import com.example.eventphoto.dto.ChunkedUploadCreateRequest;
+import com.example.eventphoto.dto.ChunkedUploadResponse;
+import com.example.eventphoto.dto.UploadFileResult;
+import com.example.eventphoto.exception.UploadOffsetConflictException;
+import com.example.eventphoto.model.*;
+import com.example.eventphoto.repository.ChunkedUploadRepository;
+import com.example.eventphoto.repository.EventRepository;
+import com.example.eventphoto.repository.GuestRepository;
+import com.example.eventphoto.repository.ImageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Resumable (tus-style) uploads: create an upload, send byte ranges in order, query the offset
+ * after a dropped connection, then complete. Chunks go straight into a storage multipart upload and
+ * completion runs the assembled object through the normal ImageService ingest. Uploads left untouched
+ * for {@code upload.chunked.expire-hours} are aborted and their rows deleted by a periodic sweep.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkedUploadService {
+
+    private final ChunkedUploadRepository chunkedUploadRepository;
+    private final EventRepository eventRepository;
+    private final GuestRepository guestRepository;
+    private final ImageRepository imageRepository;
+    private final ImageService imageService;
+    private final StorageService storageService;
+    private final PlatformTransactionManager transactionManager;
+
+    /** S3 rejects multipart parts below 5 MB except the last one. */
+    @Value("${upload.chunked.min-chunk-size:5242880}")
+    private long minChunkSize;
+
+    @Value("${upload.chunked.max-chunk-size:33554432}")
+    private long maxChunkSize;
+
+    @Value("${upload.chunked.max-file-size:209715200}")
+    private long maxFileSize;
+
+    @Value("${upload.chunked.expire-hours:24}")
+    private long expireHours;
+
+    @Value("${upload.chunked.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    @Transactional
+    public ChunkedUploadResponse create(ChunkedUploadCreateRequest request, Long guestId) {
+        Event event = eventRepository.findById(request.getEventId()).orElseThrow(() -> new RuntimeException("Event not found"));
+        Guest guest = guestRepository.findById(guestId).orElseThrow(() -> new RuntimeException("Guest not found"));
+        imageService.checkUploadAllowed(event, guest, 1);
+        if (request.getSize() > maxFileSize) {
+            throw new RuntimeException("File exceeds maximum size of " + maxFileSize + " bytes");
+        }
+        String fileName = request.getFileName();
+        String ext = fileName.contains(".") ? fileName.substring(fileName.lastIndexOf('.')) : ".jpg";
+        String storageKey = event.getStorageFolderPath() + "g" + guestId + "_" + UUID.randomUUID().toString() + ext;
+        String storageUploadId;
+        try {
+            storageUploadId = storageService.createMultipartUpload(storageKey, request.getContentType());
+        } catch (IOException e) {
+            throw new RuntimeException("Upload failed: " + e.getMessage());
+        }
+        ChunkedUpload upload = ChunkedUpload.builder()
+                .id(UUID.randomUUID().toString())
+                .event(event)
+                .guest(guest)
+                .storageKey(storageKey)
+                .storageUploadId(storageUploadId)
+                .originalFileName(fileName)
+                .contentType(request.getContentType())
+                .totalSize(request.getSize())
+                .build();
+        return toResponse(chunkedUploadRepository.save(upload));
+    }
+
+    @Transactional(readOnly = true)
+    public ChunkedUploadResponse get(String uploadId, Long guestId) {
+        return toResponse(find(uploadId, guestId));
+    }
+
+    /**
+     * Append the chunk starting at offset. Re-sending a chunk the server already has, or skipping
+     * ahead, is answered with the current offset so the client can resume from there.
+     */
+    @Transactional
+    public ChunkedUploadResponse appendChunk(String uploadId, Long guestId, long offset, InputStream body) {
+        ChunkedUpload upload = find(uploadId, guestId);
+        if (upload.getStatus() != ChunkedUploadStatus.IN_PROGRESS) {
+            throw new RuntimeException("Upload is no longer in progress");
+        }
+        if (offset != upload.getReceivedBytes()) {
+            throw new UploadOffsetConflictException(upload.getReceivedBytes());
+        }
+        long remaining = upload.getTotalSize() - upload.getReceivedBytes();
+        byte[] chunk;
+        try {
+            chunk = body.readNBytes((int) Math.min(maxChunkSize, remaining) + 1);
+        } catch (IOException e) {
+            throw new RuntimeException("Upload failed: " + e.getMessage());
+        }
+        if (chunk.length == 0) {
+            throw new RuntimeException("Empty chunk");
+        }
+        if (chunk.length > remaining) {
+            throw new RuntimeException("Chunk extends past the declared file size");
+        }
+        if (chunk.length > maxChunkSize) {
+            throw new RuntimeException("Chunk exceeds maximum size of " + maxChunkSize + " bytes");
+        }
+        if (chunk.length < minChunkSize && chunk.length != remaining) {
+            throw new RuntimeException("Only the last chunk may be smaller than " + minChunkSize + " bytes");
+        }
+        int partNumber = upload.getPartCount() + 1;
+        try {
+            storageService.uploadPart(upload.getStorageKey(), upload.getStorageUploadId(), partNumber, chunk);
+        } catch (IOException e) {
+            throw new RuntimeException("Upload failed: " + e.getMessage());
+        }
+        upload.setPartCount(partNumber);
+        upload.setReceivedBytes(upload.getReceivedBytes() + chunk.length);
+        return toResponse(upload);
+    }
+
+    @Transactional
+    public UploadFileResult complete(String uploadId, Long guestId) {
+        ChunkedUpload upload = find(uploadId, guestId);
+        if (upload.getStatus() != ChunkedUploadStatus.IN_PROGRESS) {
+            throw new RuntimeException("Upload is no longer in progress");
+        }
+        if (!upload.isFullyReceived()) {
+            throw new UploadOffsetConflictException(upload.getReceivedBytes());
+        }
+        try {
+            // A previous attempt may have assembled the object and then failed during ingest (which
+            // rolled the status back); the multipart upload id is gone by then, so reuse the object.
+            boolean assembled = storageService.stat(upload.getStorageKey())
+                    .filter(info -> info.getSize() == upload.getTotalSize())
+                    .isPresent();
+            if (!assembled) {
+                storageService.completeMultipartUpload(upload.getStorageKey(), upload.getStorageUploadId());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Upload failed: " + e.getMessage());
+        }
+        upload.setStatus(ChunkedUploadStatus.COMPLETED);
+        UploadFileResult result = imageService.ingest(upload.getEvent(), upload.getGuest(), List.of(storedSource(upload))).get(0);
+        if (result.getStatus() != UploadItemStatus.UPLOADED) {
+            deleteQuietly(upload.getStorageKey());
+        }
+        return result;
+    }
+
+    @Transactional
+    public void abort(String uploadId, Long guestId) {
+        ChunkedUpload upload = find(uploadId, guestId);
+        if (upload.getStatus() != ChunkedUploadStatus.IN_PROGRESS) return;
+        try {
+            storageService.abortMultipartUpload(upload.getStorageKey(), upload.getStorageUploadId());
+        } catch (IOException e) {
+            log.warn("Could not abort multipart upload {}", upload.getStorageUploadId());
+        }
+        upload.setStatus(ChunkedUploadStatus.ABORTED);
+    }
+
+    /**
+     * Abort and delete uploads nobody has touched for {@code upload.chunked.expire-hours}. Clients that
+     * neither complete nor abort would otherwise leave billed S3 multipart parts (or local
+     * {@code .multipart/} directories) behind for good. Finished rows are dropped after the same age.
+     */
+    @Scheduled(initialDelayString = "${upload.chunked.sweep-ms:3600000}",
+            fixedDelayString = "${upload.chunked.sweep-ms:3600000}")
+    public void expireAbandoned() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(expireHours);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<ChunkedUpload> stale = chunkedUploadRepository.findByUpdatedAtBeforeOrderByUpdatedAtAsc(cutoff,
+                PageRequest.of(0, sweepBatchSize));
+        for (ChunkedUpload upload : stale) {
+            try {
+                tx.executeWithoutResult(status -> expire(upload.getId(), cutoff));
+            } catch (RuntimeException e) {
+                // Typically a chunk arrived meanwhile (optimistic lock); the upload is live again.
+                log.warn("Could not expire chunked upload {}: {}", upload.getId(), e.getMessage());
+            }
+        }
+        if (!stale.isEmpty()) {
+            log.info("Expired {} chunked uploads idle since before {}", stale.size(), cutoff);
+        }
+    }
+
+    private void expire(String uploadId, LocalDateTime cutoff) {
+        ChunkedUpload upload = chunkedUploadRepository.findById(uploadId).orElse(null);
+        if (upload == null || upload.getUpdatedAt() == null || !upload.getUpdatedAt().isBefore(cutoff)) return;
+        if (upload.getStatus() == ChunkedUploadStatus.IN_PROGRESS) {
+            try {
+                storageService.abortMultipartUpload(upload.getStorageKey(), upload.getStorageUploadId());
+            } catch (IOException | RuntimeException e) {
+                log.debug("Could not abort multipart upload {}: {}", upload.getStorageUploadId(), e.getMessage());
+            }
+            // A completion that assembled the object and then failed ingest leaves it unregistered.
+            if (!imageRepository.existsByStorageKey(upload.getStorageKey())) {
+                deleteQuietly(upload.getStorageKey());
+            }
+        }
+        chunkedUploadRepository.delete(upload);
+    }
+
+    private ImageService.UploadSource storedSource(ChunkedUpload upload) {
+        return new ImageService.UploadSource() {
+            @Override
+            public String getOriginalFileName() {
+                return upload.getOriginalFileName();
+            }
+
+            @Override
+            public IngestedUpload open() throws IOException {
+                try (InputStream in = storageService.getFileStream(upload.getStorageKey())) {
+                    return IngestedUpload.read(in, upload.getOriginalFileName(), upload.getContentType(), upload.getTotalSize());
+                }
+            }
+
+            @Override
+            public String getStorageKey() {
+                return upload.getStorageKey();
+            }
+        };
+    }
+
+    private ChunkedUpload find(String uploadId, Long guestId) {
+        return chunkedUploadRepository.findByIdAndGuestId(uploadId, guestId)
+                .orElseThrow(() -> new RuntimeException("Upload not found"));
+    }
+
+    private void deleteQuietly(String storageKey) {
+        try {
+            storageService.deleteFile(storageKey);
+        } catch (Exception e) {
+            log.warn("Could not delete file from storage: {}", storageKey);
+        }
+    }
+
+    private ChunkedUploadResponse toResponse(ChunkedUpload upload) {
+        return ChunkedUploadResponse.builder()
+                .uploadId(upload.getId())
+                .eventId(upload.getEvent().getId())
+                .fileName(upload.getOriginalFileName())
+                .totalSize(upload.getTotalSize())
+                .offset(upload.getReceivedBytes())
+                .status(upload.getStatus())
+                .minChunkSize(minChunkSize)
+                .maxChunkSize(maxChunkSize)
+                .build();
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.eventphoto.service;
 
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 /**
  * Default: allow all. Replace with integration to open-source NSFW detector
@@ -11,10 +10,12 @@
 public class ContentModerationServiceImpl implements ContentModerationService {
 
     @Override
-    public boolean isSafe(MultipartFile file) throws Exception {
-        if (file == null || file.isEmpty()) return false;
-        String contentType = file.getContentType();
+    public boolean isSafe(IngestedUpload upload) throws Exception {
+        if (upload == null || upload.isEmpty()) return false;
+        String contentType = upload.getContentType();
         if (contentType == null || !contentType.startsWith("image/")) return false;
+        // Header check only: corrupt headers and decompression bombs throw and are rejected.
+        upload.analysis();
         // Placeholder: accept all. Integrate with model/API for production.
         return true;
     }
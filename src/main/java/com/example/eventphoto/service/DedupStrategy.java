@@ -0,0 +1,11 @@
+package com.example.eventphoto.service;
+
+/**
+ * How uploads are compared for duplicate detection ({@code dedup.strategy}).
+ */
+public enum DedupStrategy {
+    /** Compute and compare the DCT pHash for every upload. */
+    PHASH,
+    /** Compare the cheap dHash first; compute and confirm with pHash only for near candidates. */
+    DHASH_PHASH
+}
@@ -0,0 +1,161 @@
+package com.example.eventphoto.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded LRU of generated files on local disk. Concurrent requests for the same key share one
+ * generation; entries survive restarts (the index is rebuilt from the directory, oldest first).
+ */
+@Component
+@Slf4j
+public class DerivativeCache {
+
+    private final Path dir;
+    private final long maxBytes;
+
+    /** Access-ordered index of cached file sizes; guarded by {@code this}. */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    public DerivativeCache(@Value("${derivatives.cache-dir:${java.io.tmpdir}/eventphoto-derivatives}") String dir,
+                           @Value("${derivatives.cache-max-bytes:1073741824}") long maxBytes) {
+        this.dir = Paths.get(dir);
+        this.maxBytes = maxBytes;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(dir);
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(dir)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        files.sort(Comparator.comparingLong(DerivativeCache::lastAccess));
+        synchronized (this) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                long size = Files.size(file);
+                entries.put(name, size);
+                totalBytes += size;
+            }
+            evictOverLimit();
+        }
+        log.info("Derivative cache at {} holds {} files ({} bytes)", dir, entries.size(), totalBytes);
+    }
+
+    /**
+     * Path of the cached file for this key, generating it with {@code generator} on a miss. The
+     * key must be a safe file name (e.g. a hex digest).
+     */
+    public Path getOrCreate(String key, Generator generator) throws IOException {
+        synchronized (this) {
+            if (entries.get(key) != null) {
+                Path cached = dir.resolve(key);
+                if (Files.exists(cached)) return cached;
+                totalBytes -= entries.remove(key);
+            }
+        }
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException io) throw io;
+                throw e;
+            }
+        }
+        try {
+            synchronized (this) {
+                // A generation for this key may have finished between the lookup and putIfAbsent.
+                if (entries.get(key) != null && Files.exists(dir.resolve(key))) {
+                    mine.complete(dir.resolve(key));
+                    return dir.resolve(key);
+                }
+            }
+            Path path = write(key, generator.generate());
+            mine.complete(path);
+            return path;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    private Path write(String key, byte[] bytes) throws IOException {
+        Path target = dir.resolve(key);
+        Path tmp = dir.resolve(key + "." + Thread.currentThread().getId() + ".tmp");
+        Files.write(tmp, bytes);
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            Long previous = entries.put(key, (long) bytes.length);
+            totalBytes += bytes.length - (previous != null ? previous : 0);
+            evictOverLimit();
+        }
+        return target;
+    }
+
+    private void evictOverLimit() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        // Never evict the most recent entry: it is about to be served.
+        while (totalBytes > maxBytes && entries.size() > 1 && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            try {
+                Files.deleteIfExists(dir.resolve(eldest.getKey()));
+            } catch (IOException e) {
+                log.warn("Could not delete cached derivative {}", eldest.getKey());
+            }
+            totalBytes -= eldest.getValue();
+            it.remove();
+        }
+    }
+
+    private static long lastAccess(Path file) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            return Math.max(attrs.lastAccessTime().toMillis(), attrs.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Generator {
+        byte[] generate() throws IOException;
+    }
+}
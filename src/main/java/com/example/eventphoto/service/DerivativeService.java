@@ -0,0 +1,91 @@
+package com.example.eventphoto.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Arbitrary-size JPEG derivatives of stored images, generated on first request and kept in the
+ * {@link DerivativeCache}. Storage keys embed a UUID, so a derivative never goes stale.
+ */
+@Service
+@RequiredArgsConstructor
+public class DerivativeService {
+
+    public static final int MIN_EDGE = 16;
+    public static final int MAX_EDGE = 2400;
+
+    private final StorageService storageService;
+    private final DerivativeCache derivativeCache;
+
+    @Value("${derivatives.default-quality:80}")
+    private int defaultQuality;
+
+    /**
+     * @param width  maximum width, or null to constrain by height only
+     * @param height maximum height, or null to constrain by width only
+     * @param quality JPEG quality 30-95, or null for the default
+     * @throws FileNotFoundException when the original does not exist
+     */
+    public Path resize(String storageKey, Integer width, Integer height, Integer quality) throws IOException {
+        if (width == null && height == null) {
+            throw new RuntimeException("Width or height is required");
+        }
+        checkEdge(width);
+        checkEdge(height);
+        int q = quality != null ? quality : defaultQuality;
+        if (q < 30 || q > 95) {
+            throw new RuntimeException("Quality must be between 30 and 95");
+        }
+        String cacheKey = sha256(storageKey + "|" + width + "|" + height + "|" + q) + ".jpg";
+        return derivativeCache.getOrCreate(cacheKey, () -> render(storageKey, width, height, q));
+    }
+
+    private byte[] render(String storageKey, Integer width, Integer height, int quality) throws IOException {
+        // getFileBytes reports a missing object as the backend's own exception (NoSuchFileException,
+        // S3 NoSuchKeyException), so look first and report it as FileNotFoundException (404).
+        if (storageService.stat(storageKey).isEmpty()) throw new FileNotFoundException(storageKey);
+        byte[] original;
+        try {
+            original = storageService.getFileBytes(storageKey);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(storageKey);
+        }
+        ImageAnalysis analysis = ImageAnalysis.of(original);
+        if (analysis == null) throw new RuntimeException("Unsupported image format");
+        int maxW = width != null ? width : Integer.MAX_VALUE;
+        int maxH = height != null ? height : Integer.MAX_VALUE;
+        int w = analysis.getDisplayWidth();
+        int h = analysis.getDisplayHeight();
+        double scale = Math.min(1.0, Math.min((double) maxW / w, (double) maxH / h));
+        // Decode just large enough for the box, then finish with a quality downscale.
+        BufferedImage decoded = analysis.decodeForEdge((int) Math.ceil(Math.max(w, h) * scale));
+        BufferedImage resized = RenditionService.scaleToBox(decoded, maxW, maxH);
+        return RenditionService.encodeJpeg(resized, quality / 100f);
+    }
+
+    private static void checkEdge(Integer edge) {
+        if (edge != null && (edge < MIN_EDGE || edge > MAX_EDGE)) {
+            throw new RuntimeException("Dimensions must be between " + MIN_EDGE + " and " + MAX_EDGE + " pixels");
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
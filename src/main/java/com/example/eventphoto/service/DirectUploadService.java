@@ -0,0 +1,210 @@
+package com.example.eventphoto.service;
+
+import com.example.eventphoto.dto.DirectUploadFile;
+import com.example.eventphoto.dto.DirectUploadTicket;
+import com.example.eventphoto.dto.UploadFileResult;
+import com.example.eventphoto.model.Event;
+import com.example.eventphoto.model.Guest;
+import com.example.eventphoto.model.Image;
+import com.example.eventphoto.model.UploadItemStatus;
+import com.example.eventphoto.repository.EventRepository;
+import com.example.eventphoto.repository.GuestRepository;
+import com.example.eventphoto.repository.ImageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * Direct-to-storage uploads: the API hands out short-lived PUT URLs under the event folder, the
+ * client sends the bytes to storage itself, and finalize registers the images. Moderation, hashing
+ * and dedup of the stored objects then run asynchronously. Each URL writes its key once: S3 URLs are
+ * signed with {@code If-None-Match: *} and the local upload endpoint refuses existing keys, so a
+ * registered (and moderated) object cannot be replaced through the same URL while it is still valid.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DirectUploadService {
+
+    private final EventRepository eventRepository;
+    private final GuestRepository guestRepository;
+    private final ImageRepository imageRepository;
+    private final ImageService imageService;
+    private final StorageService storageService;
+    @Qualifier("uploadJobExecutor")
+    private final ExecutorService uploadJobExecutor;
+
+    @Value("${upload.direct.url-ttl-seconds:900}")
+    private long urlTtlSeconds;
+
+    @Value("${upload.direct.max-file-size:26214400}")
+    private long maxFileSize;
+
+    @Transactional(readOnly = true)
+    public List<DirectUploadTicket> createTickets(Long eventId, Long guestId, List<DirectUploadFile> files) {
+        Event event = eventRepository.findById(eventId).orElseThrow(() -> new RuntimeException("Event not found"));
+        Guest guest = guestRepository.findById(guestId).orElseThrow(() -> new RuntimeException("Guest not found"));
+        imageService.checkUploadAllowed(event, guest, files.size());
+        Duration ttl = Duration.ofSeconds(urlTtlSeconds);
+        Instant expiresAt = Instant.now().plus(ttl);
+        List<DirectUploadTicket> tickets = new ArrayList<>();
+        for (DirectUploadFile file : files) {
+            if (file.getContentType() == null || !file.getContentType().startsWith("image/")) {
+                throw new RuntimeException("Only images can be uploaded: " + file.getFileName());
+            }
+            if (file.getSize() > maxFileSize) {
+                throw new RuntimeException("File exceeds maximum size of " + maxFileSize + " bytes: " + file.getFileName());
+            }
+            String name = file.getFileName();
+            String ext = name.contains(".") ? name.substring(name.lastIndexOf('.')) : ".jpg";
+            String storageKey = guestPrefix(event, guestId) + UUID.randomUUID().toString() + ext;
+            tickets.add(DirectUploadTicket.builder()
+                    .fileName(name)
+                    .storageKey(storageKey)
+                    .uploadUrl(storageService.createUploadUrl(storageKey, file.getContentType(), ttl))
+                    .method("PUT")
+                    .contentType(file.getContentType())
+                    .headers(Map.of("Content-Type", file.getContentType(), "If-None-Match", "*"))
+                    .expiresAt(expiresAt)
+                    .build());
+        }
+        return tickets;
+    }
+
+    /**
+     * Whether a signed PUT may still write this key: neither stored yet nor registered as an image.
+     */
+    @Transactional(readOnly = true)
+    public boolean isUploadable(String storageKey) throws IOException {
+        return storageService.stat(storageKey).isEmpty() && !imageRepository.existsByStorageKey(storageKey);
+    }
+
+    /**
+     * Verify and register objects the client has uploaded. Each object must sit under this guest's
+     * key prefix, match the declared size and sniff as an image; anything else is deleted.
+     */
+    @Transactional
+    public List<UploadFileResult> finalizeUploads(Long eventId, Long guestId, List<DirectUploadFile> files) {
+        Event event = eventRepository.findById(eventId).orElseThrow(() -> new RuntimeException("Event not found"));
+        Guest guest = guestRepository.findById(guestId).orElseThrow(() -> new RuntimeException("Guest not found"));
+        imageService.checkUploadAllowed(event, guest, files.size());
+        String prefix = guestPrefix(event, guestId);
+
+        List<UploadFileResult> results = new ArrayList<>();
+        List<Image> images = new ArrayList<>();
+        Map<Image, UploadFileResult> resultByImage = new IdentityHashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            DirectUploadFile file = files.get(i);
+            UploadFileResult result = UploadFileResult.builder().index(i).originalFileName(file.getFileName()).build();
+            results.add(result);
+            String key = file.getStorageKey();
+            if (key == null || !key.startsWith(prefix) || key.indexOf('/', prefix.length()) >= 0 || key.contains("..")) {
+                fail(result, UploadItemStatus.FAILED, "Invalid storage key");
+                continue;
+            }
+            if (imageRepository.existsByStorageKey(key)) {
+                fail(result, UploadItemStatus.FAILED, "Already registered");
+                continue;
+            }
+            String contentType;
+            long size;
+            try {
+                Optional<StoredObjectInfo> info = storageService.stat(key);
+                if (info.isEmpty()) {
+                    fail(result, UploadItemStatus.FAILED, "Object not found in storage");
+                    continue;
+                }
+                size = info.get().getSize();
+                contentType = size > 0 ? sniffContentType(key, size) : null;
+            } catch (IOException e) {
+                fail(result, UploadItemStatus.FAILED, e.getMessage());
+                continue;
+            }
+            if (size != file.getSize() || size > maxFileSize) {
+                deleteQuietly(key);
+                fail(result, UploadItemStatus.FAILED, "Stored size does not match the declared size");
+                continue;
+            }
+            if (contentType == null) {
+                deleteQuietly(key);
+                fail(result, UploadItemStatus.REJECTED, "Not a supported image");
+                continue;
+            }
+            Image image = Image.builder()
+                    .fileName(key)
+                    .originalFileName(file.getFileName())
+                    .storageKey(key)
+                    .storageUrl(storageService.getPublicUrl(key))
+                    .fileSizeMb(size / (1024.0 * 1024.0))
+                    .fileSizeBytes(size)
+                    .contentType(contentType)
+                    .event(event)
+                    .guest(guest)
+                    .build();
+            images.add(image);
+            resultByImage.put(image, result);
+        }
+        if (images.isEmpty()) return results;
+
+        images = imageRepository.saveAll(images);
+        guest.setUploadCount(guest.getUploadCount() + images.size());
+        guestRepository.save(guest);
+        List<Long> imageIds = new ArrayList<>();
+        for (Image image : images) {
+            UploadFileResult result = resultByImage.get(image);
+            result.setStatus(UploadItemStatus.UPLOADED);
+            result.setImageId(image.getId());
+            result.setImage(imageService.toImageResponse(image));
+            imageIds.add(image.getId());
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                imageIds.forEach(id -> uploadJobExecutor.execute(() -> {
+                    try {
+                        imageService.analyzeStoredImage(id);
+                    } catch (Exception e) {
+                        log.warn("Could not analyze stored image {}", id, e);
+                    }
+                }));
+            }
+        });
+        return results;
+    }
+
+    private String sniffContentType(String storageKey, long size) throws IOException {
+        try (InputStream in = storageService.getFileStream(storageKey, 0, Math.min(16, size))) {
+            return IngestedUpload.sniffContentType(in.readNBytes(16));
+        }
+    }
+
+    private static String guestPrefix(Event event, Long guestId) {
+        return event.getStorageFolderPath() + "g" + guestId + "_";
+    }
+
+    private static void fail(UploadFileResult result, UploadItemStatus status, String message) {
+        result.setStatus(status);
+        result.setMessage(message);
+    }
+
+    private void deleteQuietly(String storageKey) {
+        try {
+            storageService.deleteFile(storageKey);
+        } catch (Exception e) {
+            log.warn("Could not delete file from storage: {}", storageKey);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.eventphoto.service;
+
+import com.example.eventphoto.model.Event;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Per-event ingest policy for oversized originals: uploads above the event's megapixel or long-edge
+ * limit are re-encoded as JPEG at the event's quality before they are stored, so storage, ZIP, PDF
+ * and serving all work on the smaller file. The re-encode is upright (EXIF orientation applied) and
+ * carries no metadata. When the event keeps originals, the untouched upload goes to archive storage
+ * under {@link #archiveKey}.
+ */
+@Service
+public class DownscaleService {
+
+    @Value("${upload.downscale.default-quality:85}")
+    private int defaultQuality;
+
+    public boolean hasPolicy(Event event) {
+        return event.getMaxMegapixels() != null || event.getMaxLongEdge() != null;
+    }
+
+    public boolean keepsOriginals(Event event) {
+        return Boolean.TRUE.equals(event.getKeepOriginals());
+    }
+
+    /**
+     * Re-encode the upload if it exceeds the event's policy.
+     *
+     * @return the re-encoded upload (checksums computed over the new bytes), or null when the image
+     * is within the limits, cannot be decoded, or would not get smaller
+     */
+    public IngestedUpload apply(Event event, IngestedUpload upload) throws IOException {
+        if (!hasPolicy(event)) return null;
+        ImageAnalysis analysis = upload.analysis();
+        if (analysis == null) return null;
+        int width = analysis.getDisplayWidth();
+        int height = analysis.getDisplayHeight();
+        double scale = 1.0;
+        if (event.getMaxLongEdge() != null) {
+            scale = Math.min(scale, (double) event.getMaxLongEdge() / Math.max(width, height));
+        }
+        if (event.getMaxMegapixels() != null) {
+            scale = Math.min(scale, Math.sqrt(event.getMaxMegapixels() * 1_000_000 / ((double) width * height)));
+        }
+        if (scale >= 1.0) return null;
+        int targetWidth = Math.max(1, (int) Math.floor(width * scale));
+        int targetHeight = Math.max(1, (int) Math.floor(height * scale));
+
+        BufferedImage decoded = analysis.decodeForEdge(Math.max(targetWidth, targetHeight));
+        BufferedImage scaled = RenditionService.scaleToBox(decoded, targetWidth, targetHeight);
+        int quality = event.getDownscaleQuality() != null ? event.getDownscaleQuality() : defaultQuality;
+        byte[] jpeg = RenditionService.encodeJpeg(scaled, quality / 100f);
+        if (jpeg.length >= upload.getSize()) return null;
+        return IngestedUpload.read(new ByteArrayInputStream(jpeg), upload.getOriginalFileName(), "image/jpeg", jpeg.length);
+    }
+
+    public static String archiveKey(String storageKey) {
+        return "originals/" + storageKey;
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.eventphoto.service;
 
-import org.springframework.web.multipart.MultipartFile;
+import com.example.eventphoto.model.Image;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -9,13 +11,37 @@
  */
 public interface DuplicateDetectionService {
     /**
-     * Compute perceptual hash for image (e.g. pHash/DCT-based).
+     * Compute the hashes for an upload to this guest's gallery: always the cheap dHash, and the pHash
+     * (DCT-based) either always or, depending on the configured {@link DedupStrategy}, only when the
+     * guest already has a dHash candidate. Call while the upload's decoded raster is still alive.
      */
-    String computeHash(MultipartFile file) throws Exception;
+    ImageHashes computeHashes(IngestedUpload upload, Long eventId, Long guestId) throws Exception;
 
     /**
-     * Check if this hash is duplicate of any existing in event for this guest.
+     * Check if these hashes match any existing image in the event for this guest.
      * @return optional of existing image id if duplicate found
      */
-    Optional<Long> findDuplicate(Long eventId, Long guestId, String perceptualHash);
+    Optional<Long> findDuplicate(Long eventId, Long guestId, ImageHashes hashes);
+
+    /**
+     * Ids of images anywhere in the event, from any guest, within the pHash duplicate distance of
+     * this image. The Hamming filter runs in the database; dHash-only matches are confirmed on the
+     * pHash, which is backfilled where missing.
+     */
+    List<Long> findSimilarInEvent(Image image);
+
+    /**
+     * Whether two images are close enough to count as the same photo.
+     */
+    boolean isDuplicate(ImageHashes hashes, ImageHashes other);
+
+    /**
+     * Make saved images visible to {@link #findDuplicate} once the current transaction commits.
+     */
+    void imagesSaved(Collection<Image> images);
+
+    /**
+     * Drop deleted images from duplicate lookups once the current transaction commits.
+     */
+    void imagesDeleted(Collection<Image> images);
 }
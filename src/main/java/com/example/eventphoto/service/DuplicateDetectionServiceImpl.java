@@ -3,58 +3,257 @@
 import com.example.eventphoto.model.Image;
 import com.example.eventphoto.repository.ImageRepository;
 import dev.brachtendorf.jimagehash.hashAlgorithms.PerceptiveHash;
-import dev.brachtendorf.jimagehash.hashAlgorithms.hashingAlgorithms.Hash;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.InputStream;
-import java.util.Base64;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class DuplicateDetectionServiceImpl implements DuplicateDetectionService {
 
     private static final double DUPLICATE_THRESHOLD = 0.2;
 
+    /** dHash grid: 9x8 cells give 8 horizontal gradients per row, 64 bits in total. */
+    private static final int DHASH_COLS = 9;
+    private static final int DHASH_ROWS = 8;
+    private static final int DHASH_CELL = 16;
+
+    private final PerceptualHashIndex hashIndex;
     private final ImageRepository imageRepository;
+    private final StorageService storageService;
     private final PerceptiveHash hasher = new PerceptiveHash(32);
+    private volatile int maxDuplicateBits = -1;
+
+    @Value("${dedup.strategy:DHASH_PHASH}")
+    private DedupStrategy strategy;
+
+    @Value("${dedup.dhash.max-distance:16}")
+    private int maxDHashBits;
 
     @Override
-    public String computeHash(MultipartFile file) throws Exception {
-        BufferedImage img = ImageIO.read(file.getInputStream());
-        if (img == null) return null;
-        Hash hash = hasher.hash(img);
-        byte[] bytes = hash.getHashValue();
-        return Base64.getEncoder().encodeToString(bytes);
+    public ImageHashes computeHashes(IngestedUpload upload, Long eventId, Long guestId) throws Exception {
+        ImageAnalysis analysis = upload.analysis();
+        if (analysis == null) {
+            ImageHashes hashes = new ImageHashes(upload, null);
+            hashes.setPerceptualHash(null);
+            return hashes;
+        }
+        BufferedImage img = analysis.getImage();
+        long dHash = differenceHash(img);
+        ImageHashes hashes = new ImageHashes(upload, dHash);
+        // With a stored candidate the pHash will be needed; take it from the raster we already have
+        if (strategy == DedupStrategy.PHASH || hashIndex.hasCandidate(eventId, guestId, dHash, maxDHashBits)) {
+            hashes.setPerceptualHash(perceptualHash(img));
+        }
+        return hashes;
     }
 
     @Override
-    public Optional<Long> findDuplicate(Long eventId, Long guestId, String perceptualHash) {
-        if (perceptualHash == null) return Optional.empty();
-        List<Image> existing = imageRepository.findByEventIdAndGuestId(eventId, guestId);
-        byte[] newBytes;
-        try {
-            newBytes = Base64.getDecoder().decode(perceptualHash);
-        } catch (IllegalArgumentException e) {
-            return Optional.empty();
+    public Optional<Long> findDuplicate(Long eventId, Long guestId, ImageHashes hashes) {
+        if (hashes == null) return Optional.empty();
+        long id;
+        if (strategy == DedupStrategy.DHASH_PHASH && hashes.getDifferenceHash() != null) {
+            id = hashIndex.findConfirmed(eventId, guestId, hashes.getDifferenceHash(), maxDHashBits, (candidateId, storedPHash) -> {
+                Long pHash = perceptualHash(hashes);
+                if (pHash == null) return false;
+                Long other = storedPHash != null ? storedPHash : backfillPerceptualHash(eventId, guestId, candidateId);
+                return other != null && Long.bitCount(pHash ^ other) <= maxDuplicateBits();
+            });
+        } else {
+            Long pHash = perceptualHash(hashes);
+            if (pHash == null) return Optional.empty();
+            id = hashIndex.findWithin(eventId, guestId, pHash, maxDuplicateBits());
+        }
+        return id == PerceptualHashIndex.NOT_FOUND ? Optional.empty() : Optional.of(id);
+    }
+
+    @Override
+    public List<Long> findSimilarInEvent(Image image) {
+        Long eventId = image.getEvent().getId();
+        Long pHash = image.getPerceptualHash();
+        Long dHash = image.getDifferenceHash();
+        if (pHash == null && dHash == null) return List.of();
+        List<Object[]> rows = imageRepository.findCandidatesWithinHammingDistance(eventId,
+                pHash != null, pHash != null ? pHash : 0L, maxDuplicateBits(),
+                dHash != null, dHash != null ? dHash : 0L, maxDHashBits);
+        List<Long> similar = new ArrayList<>();
+        boolean ownComputed = pHash != null;
+        for (Object[] row : rows) {
+            long id = ((Number) row[0]).longValue();
+            Long otherPHash = row[2] != null ? ((Number) row[2]).longValue() : null;
+            if (id == image.getId()) continue;
+            if (pHash != null && otherPHash != null) {
+                // Matched on the pHash in the database
+                similar.add(id);
+                continue;
+            }
+            // Matched on the dHash prefilter only: confirm on the pHash, backfilling either side
+            if (!ownComputed) {
+                pHash = backfillPerceptualHash(eventId, image.getGuest().getId(), image.getId());
+                ownComputed = true;
+            }
+            if (pHash == null) break;
+            Long other = otherPHash != null ? otherPHash : backfillPerceptualHash(eventId, ((Number) row[1]).longValue(), id);
+            if (other != null && Long.bitCount(pHash ^ other) <= maxDuplicateBits()) similar.add(id);
         }
-        Hash newHash = new Hash(newBytes);
-        for (Image img : existing) {
-            if (img.getPerceptualHash() == null) continue;
+        return similar;
+    }
+
+    @Override
+    public boolean isDuplicate(ImageHashes hashes, ImageHashes other) {
+        if (hashes == null || other == null) return false;
+        if (strategy == DedupStrategy.DHASH_PHASH && hashes.getDifferenceHash() != null && other.getDifferenceHash() != null
+                && Long.bitCount(hashes.getDifferenceHash() ^ other.getDifferenceHash()) > maxDHashBits) {
+            return false;
+        }
+        Long a = perceptualHash(hashes);
+        Long b = perceptualHash(other);
+        return a != null && b != null && Long.bitCount(a ^ b) <= maxDuplicateBits();
+    }
+
+    @Override
+    public void imagesSaved(Collection<Image> images) {
+        List<Runnable> updates = new ArrayList<>();
+        for (Image img : images) {
+            if (img.getPerceptualHash() == null && img.getDifferenceHash() == null) continue;
+            Long eventId = img.getEvent().getId();
+            Long guestId = img.getGuest().getId();
+            Long imageId = img.getId();
+            Long pHash = img.getPerceptualHash();
+            Long dHash = img.getDifferenceHash();
+            updates.add(() -> hashIndex.add(eventId, guestId, imageId, pHash, dHash));
+        }
+        if (updates.isEmpty()) return;
+        afterCommit(() -> updates.forEach(Runnable::run));
+    }
+
+    @Override
+    public void imagesDeleted(Collection<Image> images) {
+        List<long[]> entries = images.stream()
+                .map(img -> new long[]{img.getEvent().getId(), img.getGuest().getId(), img.getId()})
+                .toList();
+        afterCommit(() -> entries.forEach(e -> hashIndex.remove(e[0], e[1], e[2])));
+    }
+
+    /**
+     * The pHash of these hashes, computing it from the upload on first use. Only files compared
+     * with a near file of the same batch get here without one, and are decoded again for it.
+     */
+    private Long perceptualHash(ImageHashes hashes) {
+        if (!hashes.isPerceptualComputed()) {
+            Long value = null;
             try {
-                byte[] existingBytes = Base64.getDecoder().decode(img.getPerceptualHash());
-                Hash existingHash = new Hash(existingBytes);
-                if (newHash.normalizedHammingDistance(existingHash) < DUPLICATE_THRESHOLD) {
-                    return Optional.of(img.getId());
-                }
-            } catch (Exception ignored) {
+                ImageAnalysis analysis = hashes.getUpload() != null ? hashes.getUpload().analysis() : null;
+                if (analysis != null) value = perceptualHash(analysis.getImage());
+            } catch (Exception e) {
+                log.warn("Could not compute perceptual hash", e);
+            }
+            hashes.setPerceptualHash(value);
+        }
+        return hashes.getPerceptualHash();
+    }
+
+    /**
+     * The pHash bits as a long. At this resolution the hash is well under 64 bits; the leading
+     * padding bit JImageHash adds is identical for every hash and cancels in XOR.
+     */
+    private Long perceptualHash(BufferedImage img) {
+        BigInteger value = hasher.hash(img).getHashValue();
+        return value.bitLength() <= 64 ? value.longValue() : null;
+    }
+
+    /**
+     * A stored dHash candidate never needed a pHash before; compute it from storage once and keep
+     * it on the row and in the index.
+     */
+    private Long backfillPerceptualHash(Long eventId, Long guestId, long imageId) {
+        Image image = imageRepository.findById(imageId).orElse(null);
+        if (image == null) return null;
+        try (InputStream in = storageService.getFileStream(image.getStorageKey())) {
+            IngestedUpload stored = IngestedUpload.read(in, image.getOriginalFileName(), image.getContentType(),
+                    image.getFileSizeBytes() != null ? image.getFileSizeBytes() : -1);
+            ImageAnalysis analysis = stored.analysis();
+            Long pHash = analysis != null ? perceptualHash(analysis.getImage()) : null;
+            if (pHash != null) {
+                imageRepository.updatePerceptualHash(imageId, pHash);
+                hashIndex.add(eventId, guestId, imageId, pHash, null);
             }
+            return pHash;
+        } catch (Exception e) {
+            log.warn("Could not backfill perceptual hash for image {}", imageId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 64-bit difference hash: shrink to a 9x8 grayscale grid (bilinear to 144x128, then 16x16 box
+     * averages) and set one bit per horizontal neighbour pair where the left cell is brighter.
+     */
+    static long differenceHash(BufferedImage img) {
+        int w = DHASH_COLS * DHASH_CELL;
+        int h = DHASH_ROWS * DHASH_CELL;
+        BufferedImage gray = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = gray.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(img, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
         }
-        return Optional.empty();
+        int[] pixels = gray.getRaster().getPixels(0, 0, w, h, (int[]) null);
+        int[] cells = new int[DHASH_COLS * DHASH_ROWS];
+        for (int y = 0; y < h; y++) {
+            int rowBase = (y / DHASH_CELL) * DHASH_COLS;
+            for (int x = 0; x < w; x++) {
+                cells[rowBase + x / DHASH_CELL] += pixels[y * w + x];
+            }
+        }
+        long bits = 0;
+        for (int row = 0; row < DHASH_ROWS; row++) {
+            for (int col = 0; col < DHASH_COLS - 1; col++) {
+                bits <<= 1;
+                if (cells[row * DHASH_COLS + col] > cells[row * DHASH_COLS + col + 1]) bits |= 1;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Largest pHash Hamming distance that still counts as a duplicate: {@code bits / keyResolution < threshold}.
+     */
+    private int maxDuplicateBits() {
+        int bits = maxDuplicateBits;
+        if (bits < 0) {
+            bits = (int) Math.ceil(DUPLICATE_THRESHOLD * hasher.getKeyResolution()) - 1;
+            maxDuplicateBits = bits;
+        }
+        return bits;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
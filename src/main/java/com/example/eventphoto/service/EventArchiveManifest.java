@@ -0,0 +1,62 @@
+package com.example.eventphoto.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stored description of an event archive: the segment objects that, concatenated, hold every local
+ * header and entry, and the entries themselves, from which the central directory is generated.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventArchiveManifest {
+    private Long eventId;
+    /** Bumped by every write; each write replaces only the version it was derived from. */
+    private long version;
+    private Instant builtAt;
+    /** Length of all segments, i.e. the offset of the central directory. */
+    private long dataLength;
+    private List<Segment> segments = new ArrayList<>();
+    private List<Entry> entries = new ArrayList<>();
+    /** Segments of earlier generations, kept for in-progress downloads until the retention passes. */
+    private List<RetiredSegment> retired = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Segment {
+        private String key;
+        private long length;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RetiredSegment {
+        private String key;
+        private Instant retiredAt;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        private Long imageId;
+        private String name;
+        private long crc32;
+        private long size;
+        private long dosDateTime;
+        /** Offset of the local header in the archive. */
+        private long offset;
+
+        ZipLayout.Entry toLayout() {
+            return new ZipLayout.Entry(name, crc32, size, dosDateTime, offset);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.eventphoto.service;
+
+import com.example.eventphoto.dto.EventArchiveResponse;
+import com.example.eventphoto.model.EventArchiveStatus;
+import com.example.eventphoto.model.Image;
+import com.example.eventphoto.repository.ImageRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Precomputed "download all" archive per event, kept in storage so repeated downloads do not refetch
+ * every object. The archive is a STORED ZIP split into segment objects under
+ * {@code archives/events/{eventId}/}: each build appends one segment holding the local headers and
+ * bytes of the images added since the previous build, and records all entries in
+ * {@code manifest.json}. The central directory is generated from the manifest when the archive is
+ * served. When images were deleted the archive is rebuilt from scratch; the previous segments stay
+ * listed as retired for {@code archives.event.retain-hours} so downloads already streaming the older
+ * archive can finish (a resume gets the new archive from the start, since its ETag changed), and a
+ * scheduled sweep deletes them afterwards. The manifest is read from and written to the storage
+ * backend directly, never through the read cache, so every node sees the latest one, and it is only
+ * replaced by a conditional write over the version a build started from: of concurrent builds on
+ * several nodes one wins and the others delete the segments they wrote. Builds run on the upload job
+ * pool, one at a time per event on each node.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EventArchiveService {
+
+    private static final String ARCHIVES_PREFIX = "archives/events/";
+    private static final String MANIFEST_NAME = "manifest.json";
+
+    private final ImageRepository imageRepository;
+    private final StorageService storageService;
+    @Qualifier("storageBackend")
+    private final StorageService storageBackend;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+    @Qualifier("uploadJobExecutor")
+    private final ExecutorService uploadJobExecutor;
+
+    /** Segments are written as multipart uploads of this part size (at least the S3 minimum of 5 MB). */
+    @Value("${archives.event.part-size:8388608}")
+    private int partSize;
+
+    @Value("${archives.event.retain-hours:24}")
+    private long retainHours;
+
+    private final Map<Long, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Long, String> failures = new ConcurrentHashMap<>();
+
+    public EventArchiveResponse status(Long eventId) {
+        EventArchiveManifest manifest = readManifest(eventId);
+        EventArchiveStatus status;
+        if (inFlight.containsKey(eventId)) {
+            status = EventArchiveStatus.BUILDING;
+        } else if (failures.containsKey(eventId)) {
+            status = EventArchiveStatus.FAILED;
+        } else if (manifest == null) {
+            status = EventArchiveStatus.NONE;
+        } else {
+            status = isCurrent(manifest) ? EventArchiveStatus.READY : EventArchiveStatus.STALE;
+        }
+        return toResponse(eventId, status, manifest);
+    }
+
+    /**
+     * Start bringing the event's archive up to date unless it already is (or a build is running).
+     */
+    public EventArchiveResponse requestBuild(Long eventId) {
+        EventArchiveManifest manifest = readManifest(eventId);
+        if (manifest != null && !inFlight.containsKey(eventId) && isCurrent(manifest)) {
+            return toResponse(eventId, EventArchiveStatus.READY, manifest);
+        }
+        CompletableFuture<Void> mine = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(eventId, mine) == null) {
+            failures.remove(eventId);
+            uploadJobExecutor.execute(() -> {
+                try {
+                    build(eventId);
+                } catch (Exception e) {
+                    log.warn("Could not build archive of event {}", eventId, e);
+                    failures.put(eventId, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                } finally {
+                    inFlight.remove(eventId, mine);
+                    mine.complete(null);
+                }
+            });
+        }
+        return toResponse(eventId, EventArchiveStatus.BUILDING, manifest);
+    }
+
+    /**
+     * The stored archive if it covers exactly the event's current images: every segment in order,
+     * then the central directory generated from the manifest.
+     */
+    public Optional<VirtualZip> currentArchive(Long eventId) {
+        EventArchiveManifest manifest = readManifest(eventId);
+        if (manifest == null || !isCurrent(manifest)) return Optional.empty();
+        List<VirtualZip.Slice> slices = new ArrayList<>();
+        for (EventArchiveManifest.Segment segment : manifest.getSegments()) {
+            slices.add(VirtualZip.Slice.object(segment.getKey(), 0, segment.getLength()));
+        }
+        slices.add(VirtualZip.Slice.bytes(centralDirectory(manifest)));
+        String etag = "\"archive-" + eventId + "-" + manifest.getBuiltAt().toEpochMilli() + "-" + manifest.getDataLength() + "\"";
+        return Optional.of(new VirtualZip(slices, etag));
+    }
+
+    private long archiveLength(EventArchiveManifest manifest) {
+        return manifest.getDataLength() + centralDirectory(manifest).length;
+    }
+
+    /**
+     * Delete retired segments whose retention has passed, for every stored archive. Dropping them
+     * from the manifest leaves the archive itself, and its ETag, unchanged.
+     */
+    @Scheduled(initialDelayString = "${archives.event.cleanup-initial-delay-ms:300000}",
+            fixedDelayString = "${archives.event.cleanup-ms:3600000}")
+    public void deleteExpiredSegments() {
+        List<String> keys;
+        try {
+            keys = storageBackend.listKeys(ARCHIVES_PREFIX);
+        } catch (IOException e) {
+            log.warn("Could not list event archives", e);
+            return;
+        }
+        for (String key : keys) {
+            if (!key.endsWith("/" + MANIFEST_NAME)) continue;
+            Long eventId;
+            try {
+                eventId = Long.valueOf(key.substring(ARCHIVES_PREFIX.length(), key.length() - MANIFEST_NAME.length() - 1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            // A running build drops them itself.
+            if (inFlight.containsKey(eventId)) continue;
+            try {
+                StoredManifest stored = loadManifest(eventId);
+                if (stored.manifest == null) continue;
+                List<EventArchiveManifest.RetiredSegment> expired = expiredSegments(stored.manifest);
+                if (expired.isEmpty()) continue;
+                EventArchiveManifest next = stored.manifest;
+                next.setVersion(next.getVersion() + 1);
+                next.getRetired().removeAll(expired);
+                if (storageBackend.uploadIfMatch(manifestKey(eventId), objectMapper.writeValueAsBytes(next),
+                        "application/json", stored.etag)) {
+                    deleteRetired(next, expired);
+                }
+            } catch (Exception e) {
+                log.warn("Could not delete expired archive segments of event {}", eventId, e);
+            }
+        }
+    }
+
+    private void build(Long eventId) throws IOException {
+        List<Source> sources = loadSources(eventId);
+        Set<Long> currentIds = sources.stream().map(s -> s.imageId).collect(Collectors.toSet());
+        StoredManifest stored = loadManifest(eventId);
+        EventArchiveManifest previous = stored.manifest;
+        boolean rebuild = previous == null
+                || previous.getEntries().stream().anyMatch(e -> !currentIds.contains(e.getImageId()));
+
+        Instant now = Instant.now();
+        EventArchiveManifest next = new EventArchiveManifest();
+        next.setEventId(eventId);
+        next.setVersion(previous != null ? previous.getVersion() + 1 : 1);
+        if (previous != null) {
+            next.getRetired().addAll(previous.getRetired());
+        }
+        if (!rebuild) {
+            next.setBuiltAt(previous.getBuiltAt());
+            next.setDataLength(previous.getDataLength());
+            next.getSegments().addAll(previous.getSegments());
+            next.getEntries().addAll(previous.getEntries());
+        } else if (previous != null) {
+            previous.getSegments().forEach(old -> next.getRetired().add(new EventArchiveManifest.RetiredSegment(old.getKey(), now)));
+        }
+        Set<Long> archived = next.getEntries().stream().map(EventArchiveManifest.Entry::getImageId).collect(Collectors.toSet());
+        List<Source> added = sources.stream().filter(s -> !archived.contains(s.imageId)).collect(Collectors.toList());
+        List<EventArchiveManifest.RetiredSegment> expired = expiredSegments(next);
+        if (!rebuild && added.isEmpty()) return;
+
+        String segmentKey = null;
+        if (!added.isEmpty()) {
+            Set<String> names = next.getEntries().stream().map(EventArchiveManifest.Entry::getName).collect(Collectors.toCollection(HashSet::new));
+            segmentKey = ARCHIVES_PREFIX + eventId + "/segment-" + System.currentTimeMillis() + ".bin";
+            MultipartObjectWriter segment = new MultipartObjectWriter(storageService, segmentKey, "application/zip", partSize);
+            try {
+                for (Source source : added) {
+                    next.getEntries().add(append(segment, source, VirtualZip.uniqueName(names, source.name),
+                            next.getDataLength() + segment.getWritten()));
+                }
+                segment.finish();
+            } catch (IOException | RuntimeException e) {
+                segment.abort();
+                throw e;
+            }
+            next.getSegments().add(new EventArchiveManifest.Segment(segmentKey, segment.getWritten()));
+            next.setDataLength(next.getDataLength() + segment.getWritten());
+        }
+        next.setBuiltAt(now);
+        next.getRetired().removeAll(expired);
+        // The manifest is written last, and only over the one this build started from: until then
+        // readers keep using the previous segments.
+        if (!storageBackend.uploadIfMatch(manifestKey(eventId), objectMapper.writeValueAsBytes(next),
+                "application/json", stored.etag)) {
+            log.info("Archive of event {} was updated by another build meanwhile, discarding this one", eventId);
+            if (segmentKey != null) deleteQuietly(segmentKey);
+            return;
+        }
+        deleteRetired(next, expired);
+        log.info("{} archive of event {}: {} new entries, {} total, {} bytes", rebuild ? "Rebuilt" : "Extended",
+                eventId, added.size(), next.getEntries().size(), archiveLength(next));
+    }
+
+    /** Write one entry (local header and bytes) to the segment. */
+    private EventArchiveManifest.Entry append(MultipartObjectWriter segment, Source source, String name, long offset) throws IOException {
+        if (source.crc32 == null || source.size == null) {
+            byte[] bytes = storageService.getFileBytes(source.storageKey);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            EventArchiveManifest.Entry entry = new EventArchiveManifest.Entry(source.imageId, name, crc.getValue(),
+                    bytes.length, source.dosDateTime, offset);
+            segment.write(ZipLayout.localHeader(entry.toLayout()));
+            segment.write(bytes);
+            return entry;
+        }
+        EventArchiveManifest.Entry entry = new EventArchiveManifest.Entry(source.imageId, name, source.crc32,
+                source.size, source.dosDateTime, offset);
+        segment.write(ZipLayout.localHeader(entry.toLayout()));
+        try (InputStream in = storageService.getFileStream(source.storageKey)) {
+            ZipStreamService.copyExactly(in, segment, source.size, source.storageKey);
+        }
+        return entry;
+    }
+
+    private List<Source> loadSources(Long eventId) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        return tx.execute(status -> imageRepository.findByEventId(eventId).stream()
+                .sorted(Comparator.comparing(Image::getId))
+                .map(Source::of)
+                .collect(Collectors.toList()));
+    }
+
+    private boolean isCurrent(EventArchiveManifest manifest) {
+        Set<Long> archived = manifest.getEntries().stream().map(EventArchiveManifest.Entry::getImageId).collect(Collectors.toSet());
+        return archived.equals(new HashSet<>(imageRepository.findIdsByEventId(manifest.getEventId())));
+    }
+
+    /** Retired segments whose retention has passed. */
+    private List<EventArchiveManifest.RetiredSegment> expiredSegments(EventArchiveManifest manifest) {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(retainHours));
+        return manifest.getRetired().stream()
+                .filter(old -> old.getRetiredAt() == null || old.getRetiredAt().isBefore(cutoff))
+                .collect(Collectors.toList());
+    }
+
+    /** Delete retired segments that the written manifest no longer lists as live. */
+    private void deleteRetired(EventArchiveManifest manifest, List<EventArchiveManifest.RetiredSegment> retired) {
+        Set<String> live = manifest.getSegments().stream().map(EventArchiveManifest.Segment::getKey).collect(Collectors.toSet());
+        for (EventArchiveManifest.RetiredSegment old : retired) {
+            if (!live.contains(old.getKey())) deleteQuietly(old.getKey());
+        }
+    }
+
+    private void deleteQuietly(String segmentKey) {
+        try {
+            storageService.delete(segmentKey);
+        } catch (IOException e) {
+            log.warn("Could not delete archive segment {}", segmentKey);
+        }
+    }
+
+    private EventArchiveManifest readManifest(Long eventId) {
+        return loadManifest(eventId).manifest;
+    }
+
+    /**
+     * The stored manifest with the ETag it was read at. The ETag is taken first, so a manifest
+     * replaced in between makes the next conditional write fail rather than overwrite it.
+     */
+    private StoredManifest loadManifest(Long eventId) {
+        String key = manifestKey(eventId);
+        String etag = null;
+        try {
+            Optional<StoredObjectInfo> info = storageBackend.stat(key);
+            if (info.isEmpty()) return new StoredManifest(null, null);
+            etag = info.get().getEtag();
+            return new StoredManifest(objectMapper.readValue(storageBackend.getFileBytes(key), EventArchiveManifest.class), etag);
+        } catch (IOException e) {
+            log.warn("Unreadable archive manifest {}, ignoring it", key, e);
+            return new StoredManifest(null, etag);
+        }
+    }
+
+    private byte[] centralDirectory(EventArchiveManifest manifest) {
+        return ZipLayout.centralDirectory(manifest.getEntries().stream()
+                .map(EventArchiveManifest.Entry::toLayout)
+                .collect(Collectors.toList()), manifest.getDataLength());
+    }
+
+    private EventArchiveResponse toResponse(Long eventId, EventArchiveStatus status, EventArchiveManifest manifest) {
+        return EventArchiveResponse.builder()
+                .eventId(eventId)
+                .status(status)
+                .imageCount(manifest != null ? manifest.getEntries().size() : null)
+                .sizeBytes(manifest != null ? archiveLength(manifest) : null)
+                .builtAt(manifest != null ? manifest.getBuiltAt() : null)
+                .message(status == EventArchiveStatus.FAILED ? failures.get(eventId) : null)
+                .build();
+    }
+
+    private static String manifestKey(Long eventId) {
+        return ARCHIVES_PREFIX + eventId + "/" + MANIFEST_NAME;
+    }
+
+    /** A manifest (null when missing or unreadable) and the ETag of the object it came from. */
+    private static final class StoredManifest {
+        private final EventArchiveManifest manifest;
+        private final String etag;
+
+        private StoredManifest(EventArchiveManifest manifest, String etag) {
+            this.manifest = manifest;
+            this.etag = etag;
+        }
+    }
+
+    private static final class Source {
+        private final Long imageId;
+        private final String storageKey;
+        private final String name;
+        private final Long crc32;
+        private final Long size;
+        private final long dosDateTime;
+
+        private Source(Long imageId, String storageKey, String name, Long crc32, Long size, long dosDateTime) {
+            this.imageId = imageId;
+            this.storageKey = storageKey;
+            this.name = name;
+            this.crc32 = crc32;
+            this.size = size;
+            this.dosDateTime = dosDateTime;
+        }
+
+        private static Source of(Image img) {
+            String name = img.getGuest().getName().replaceAll("[^a-zA-Z0-9.-]", "_") + "_" + ImageService.downloadName(img);
+            return new Source(img.getId(), img.getStorageKey(), name, img.getCrc32(), img.getFileSizeBytes(),
+                    ZipLayout.dosDateTime(img.getUploadedAt()));
+        }
+    }
+}
@@ -15,6 +15,7 @@
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
@@ -30,7 +31,7 @@ public class EventService {
     private final PaymentRepository paymentRepository;
     private final QRCodeService qrCodeService;
     private final RazorpayService razorpayService;
-    private final StorageService storageService;
+    private final ImageResponseMapper imageResponseMapper;
 
     @Value("${app.frontend-base-url:http://localhost:3000}")
     private String frontendBaseUrl;
@@ -67,6 +68,10 @@ public EventResponse createEvent(EventCreateRequest request, Long customerId, Cu
                 .qrValidUntil(qrValidUntil)
                 .venue(request.getVenue())
                 .expectedGuests(request.getExpectedGuests())
+                .maxMegapixels(request.getMaxMegapixels())
+                .maxLongEdge(request.getMaxLongEdge())
+                .downscaleQuality(request.getDownscaleQuality())
+                .keepOriginals(request.getKeepOriginals())
                 .storageFolderPath(storageFolderPath)
                 .customer(customer)
                 .isActive(true)
@@ -122,6 +127,14 @@ public void ensureCustomerOwnsEvent(Long eventId, Long customerId) {
 
     @Transactional(readOnly = true)
     public EventImagesGroupedResponse getImagesGroupedByGuest(Long eventId) {
+        return getImagesGroupedByGuest(eventId, null);
+    }
+
+    /**
+     * @param urlExpiresAt expiry for the image URLs, or null for the usual listing URLs
+     */
+    @Transactional(readOnly = true)
+    public EventImagesGroupedResponse getImagesGroupedByGuest(Long eventId, Instant urlExpiresAt) {
         Event event = getById(eventId);
         List<Image> allImages = imageRepository.findByEventId(eventId);
         List<GuestFolderDto> folders = allImages.stream()
@@ -129,20 +142,9 @@ public EventImagesGroupedResponse getImagesGroupedByGuest(Long eventId) {
                 .entrySet().stream()
                 .map(entry -> {
                     Guest g = entry.getKey();
-                    List<ImageResponse> images = entry.getValue().stream()
-                            .map(img -> ImageResponse.builder()
-                                    .id(img.getId())
-                                    .fileName(img.getFileName())
-                                    .originalFileName(img.getOriginalFileName())
-                                    .storageUrl(storageService.getPublicUrl(img.getStorageKey()))
-                                    .fileSizeMb(img.getFileSizeMb())
-                                    .contentType(img.getContentType())
-                                    .eventId(eventId)
-                                    .guestId(g.getId())
-                                    .guestName(g.getName())
-                                    .uploadedAt(img.getUploadedAt())
-                                    .build())
-                            .collect(Collectors.toList());
+                    List<ImageResponse> images = urlExpiresAt == null
+                            ? imageResponseMapper.toResponses(entry.getValue())
+                            : imageResponseMapper.toResponses(entry.getValue(), urlExpiresAt);
                     return GuestFolderDto.builder()
                             .guestId(g.getId())
                             .guestName(g.getName())
@@ -181,6 +183,10 @@ private EventResponse toEventResponse(Event e, int guestCount, int totalImages)
                 .eventEndTime(e.getEventEndTime())
                 .venue(e.getVenue())
                 .expectedGuests(e.getExpectedGuests())
+                .maxMegapixels(e.getMaxMegapixels())
+                .maxLongEdge(e.getMaxLongEdge())
+                .downscaleQuality(e.getDownscaleQuality())
+                .keepOriginals(e.getKeepOriginals())
                 .qrCodeUrl(e.getQrCodeUrl())
                 .customerId(e.getCustomer().getId())
                 .isActive(e.getIsActive())
@@ -0,0 +1,246 @@
+package com.example.eventphoto.service;
+
+import com.example.eventphoto.dto.ApiResponse;
+import com.example.eventphoto.dto.EventImagesGroupedResponse;
+import com.example.eventphoto.dto.SharedLinkResponse;
+import com.example.eventphoto.model.Event;
+import com.example.eventphoto.model.SharedLink;
+import com.example.eventphoto.repository.EventRepository;
+import com.example.eventphoto.repository.SharedLinkRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * Static snapshots of closed events. Once an event's QR window ({@code qrValidUntil}) has passed its
+ * gallery only changes when images are deleted, so the grouped gallery and every password-less share
+ * link are rendered once as JSON (in the exact API response shape) into storage, and reads are
+ * redirected to those objects after a primary-key lookup of the current snapshot's key instead of the
+ * gallery queries.
+ * <p>
+ * Each publish writes a new versioned object, so the immutable caching of stored files stays correct.
+ * The current key is kept on the event ({@code published_gallery_key}) and share link
+ * ({@code published_key}) and only moved by compare-and-set, so concurrent publishes on several nodes
+ * agree on one snapshot, and the superseded object (or the losing one) is deleted. Image URLs inside a
+ * snapshot are signed for {@code gallery.publish.url-ttl-hours}, capped at what storage honours
+ * (presigned S3 URLs die with temporary credentials), and snapshots are republished after half of
+ * that at the latest; startup fails if the sweep runs too rarely for that. Deleting an image clears the event's keys in the deleting transaction, so every node falls
+ * back to the live API at once, and republishes after it commits.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GalleryPublishService {
+
+    private final EventRepository eventRepository;
+    private final SharedLinkRepository sharedLinkRepository;
+    private final EventService eventService;
+    private final ShareLinkService shareLinkService;
+    private final StorageService storageService;
+    private final SignedUrlService signedUrlService;
+    private final ObjectMapper objectMapper;
+    @Qualifier("uploadJobExecutor")
+    private final ExecutorService uploadJobExecutor;
+
+    @Value("${gallery.publish.enabled:true}")
+    private boolean enabled;
+
+    /** Kept under the 7-day limit of S3 presigned URLs. */
+    @Value("${gallery.publish.url-ttl-hours:144}")
+    private long urlTtlHours;
+
+    @Value("${gallery.publish.republish-after-hours:24}")
+    private long republishAfterHours;
+
+    @Value("${gallery.publish.sweep-ms:900000}")
+    private long sweepMs;
+
+    /**
+     * A snapshot must be republished before its image URLs expire, so a sweep has to come between
+     * {@link #republishAfter} and the end of {@link #urlTtl}.
+     */
+    @PostConstruct
+    public void checkSchedule() {
+        if (!enabled) return;
+        Duration ttl = urlTtl();
+        if (Duration.ofMillis(sweepMs).compareTo(ttl.minus(republishAfter(ttl))) >= 0) {
+            throw new IllegalStateException("Published image URLs only last " + ttl.toMinutes()
+                    + " minutes with these storage credentials: lower gallery.publish.sweep-ms, "
+                    + "or sign with long-lived credentials");
+        }
+    }
+
+    /**
+     * URL of the event's published gallery, if any.
+     */
+    public Optional<String> publishedGalleryUrl(Long eventId) {
+        if (!enabled) return Optional.empty();
+        return eventRepository.findPublishedGalleryKey(eventId).map(signedUrlService::url);
+    }
+
+    /**
+     * URL of the share link's published view, if any (password-protected links are never published).
+     */
+    public Optional<String> publishedShareUrl(String shareCode) {
+        if (!enabled) return Optional.empty();
+        return sharedLinkRepository.findPublishedKey(shareCode, LocalDateTime.now()).map(signedUrlService::url);
+    }
+
+    /**
+     * Publish every closed event that has no snapshot or whose snapshot is getting old, and withdraw
+     * the snapshots of deactivated events.
+     */
+    @Scheduled(initialDelayString = "${gallery.publish.initial-delay-ms:60000}",
+            fixedDelayString = "${gallery.publish.sweep-ms:900000}")
+    public void publishClosedEvents() {
+        if (!enabled) return;
+        LocalDateTime staleBefore = LocalDateTime.now().minus(republishAfter(urlTtl()));
+        for (Event event : eventRepository.findByIsActiveTrueAndQrValidUntilBefore(LocalDateTime.now())) {
+            if (event.getPublishedAt() != null && event.getPublishedAt().isAfter(staleBefore)) continue;
+            try {
+                publish(event.getId());
+            } catch (Exception e) {
+                log.warn("Could not publish gallery of event {}", event.getId(), e);
+            }
+        }
+        for (Event event : eventRepository.findByIsActiveFalseAndPublishedGalleryKeyIsNotNull()) {
+            List<String> withdrawn = withdraw(event.getId());
+            withdrawn.forEach(this::delete);
+        }
+    }
+
+    /**
+     * Render and store the event's gallery and its publishable share links, then switch reads over.
+     */
+    public void publish(Long eventId) throws IOException {
+        // Read the current keys before rendering: a deletion committed after this point moves them,
+        // so a snapshot rendered from the older state loses the swap below.
+        String previousGallery = eventRepository.findPublishedGalleryKey(eventId).orElse("");
+        Map<String, String> previousLinks = sharedLinkRepository.findByEventIdAndPublishedKeyIsNotNull(eventId).stream()
+                .collect(Collectors.toMap(SharedLink::getShareCode, SharedLink::getPublishedKey));
+
+        LocalDateTime publishedAt = LocalDateTime.now();
+        Instant now = Instant.now();
+        Instant urlExpiresAt = now.plus(urlTtl());
+        String version = Long.toString(now.toEpochMilli());
+
+        EventImagesGroupedResponse gallery = eventService.getImagesGroupedByGuest(eventId, urlExpiresAt);
+        String galleryKey = "published/events/" + eventId + "/gallery-" + version + ".json";
+        write(galleryKey, gallery);
+        if (eventRepository.swapPublishedGallery(eventId, previousGallery, galleryKey, publishedAt) == 0) {
+            // Deleted images or another node's publish got there first.
+            delete(galleryKey);
+            return;
+        }
+        delete(previousGallery);
+
+        int published = 0;
+        for (String code : shareLinkService.findPublishableShareCodes(eventId)) {
+            String previous = previousLinks.remove(code);
+            SharedLinkResponse view = shareLinkService.publicSnapshot(code, urlExpiresAt);
+            if (view == null) {
+                previousLinks.put(code, previous);
+                continue;
+            }
+            String linkKey = "published/links/" + code + "-" + version + ".json";
+            write(linkKey, view);
+            if (sharedLinkRepository.swapPublishedKey(code, previous != null ? previous : "", linkKey) == 0) {
+                delete(linkKey);
+            } else {
+                delete(previous);
+                published++;
+            }
+        }
+        // Links that are no longer publishable (expired, deactivated, given a password).
+        previousLinks.forEach((code, key) -> {
+            if (key != null && sharedLinkRepository.swapPublishedKey(code, key, null) > 0) delete(key);
+        });
+        log.info("Published gallery of event {} ({} images, {} share links)", eventId, gallery.getTotalImages(), published);
+    }
+
+    /** The configured URL lifetime, or less when storage cannot honour it. */
+    private Duration urlTtl() {
+        Duration configured = Duration.ofHours(urlTtlHours);
+        Duration max = storageService.maxDownloadUrlTtl();
+        return configured.compareTo(max) <= 0 ? configured : max;
+    }
+
+    private Duration republishAfter(Duration urlTtl) {
+        Duration configured = Duration.ofHours(republishAfterHours);
+        Duration half = urlTtl.dividedBy(2);
+        return configured.compareTo(half) <= 0 ? configured : half;
+    }
+
+    /**
+     * Images of the event were deleted: clear its snapshot keys as part of the deletion, then delete
+     * the objects and republish once it is committed.
+     */
+    public void imagesDeleted(Long eventId) {
+        List<String> withdrawn = withdraw(eventId);
+        if (withdrawn.isEmpty()) return;
+        Runnable republish = () -> uploadJobExecutor.execute(() -> {
+            withdrawn.forEach(this::delete);
+            try {
+                publish(eventId);
+            } catch (Exception e) {
+                log.warn("Could not republish gallery of event {}", eventId, e);
+            }
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    republish.run();
+                }
+            });
+        } else {
+            republish.run();
+        }
+    }
+
+    /** Clear the event's and its links' snapshot keys; returns the keys that were cleared. */
+    private List<String> withdraw(Long eventId) {
+        List<String> withdrawn = new ArrayList<>();
+        eventRepository.findPublishedGalleryKey(eventId).ifPresent(key -> {
+            if (eventRepository.swapPublishedGallery(eventId, key, null, null) > 0) withdrawn.add(key);
+        });
+        for (SharedLink link : sharedLinkRepository.findByEventIdAndPublishedKeyIsNotNull(eventId)) {
+            if (sharedLinkRepository.swapPublishedKey(link.getShareCode(), link.getPublishedKey(), null) > 0) {
+                withdrawn.add(link.getPublishedKey());
+            }
+        }
+        return withdrawn;
+    }
+
+    private void write(String key, Object body) throws IOException {
+        storageService.upload(key, objectMapper.writeValueAsBytes(ApiResponse.success("OK", body)), "application/json");
+    }
+
+    /** Delete a superseded snapshot object. */
+    private void delete(String key) {
+        if (key == null || key.isEmpty()) return;
+        try {
+            storageService.delete(key);
+        } catch (IOException e) {
+            log.warn("Could not delete old snapshot {}", key);
+        }
+    }
+}
@@ -28,7 +28,8 @@ public class GuestService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final AppPropertyService appPropertyService;
-    private final StorageService storageService;
+    private final ImageResponseMapper imageResponseMapper;
+    private final UploadJobService uploadJobService;
 
     @Transactional
     public GuestResponse register(GuestRegisterRequest request) {
@@ -124,15 +125,8 @@ public List<GuestEventWithImagesDto> getDashboard(Long guestId) {
                     .eventInfo(eventInfo)
                     .canModify(canModify)
                     .modifyDeadlineMessage(modifyDeadlineMessage)
-                    .images(images.stream().map(img -> com.example.eventphoto.dto.ImageResponse.builder()
-                            .id(img.getId())
-                            .fileName(img.getFileName())
-                            .originalFileName(img.getOriginalFileName())
-                            .storageUrl(storageService.getPublicUrl(img.getStorageKey()))
-                            .eventId(evt.getId())
-                            .guestId(guestId)
-                            .uploadedAt(img.getUploadedAt())
-                            .build()).collect(Collectors.toList()))
+                    .images(imageResponseMapper.toResponses(images))
+                    .uploadJobs(uploadJobService.recentJobs(evt.getId(), guestId))
                     .build();
         }).collect(Collectors.toList());
     }
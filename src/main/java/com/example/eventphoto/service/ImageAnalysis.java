@@ -0,0 +1,199 @@
+package com.example.eventphoto.service;
+
+import lombok.Getter;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Header facts and a single downsampled decode of an uploaded image, shared by moderation, hashing
+ * and renditions. Dimensions and EXIF orientation come from the header alone; the pixels are decoded
+ * once with source subsampling so the long edge lands just above {@link #DECODE_LONG_EDGE}, which
+ * keeps a 48 MP photo at a few MB of raster instead of ~200 MB.
+ */
+@Getter
+public class ImageAnalysis {
+
+    /** Largest long edge any consumer needs (preview renditions); hashing uses far less. */
+    public static final int DECODE_LONG_EDGE = 1600;
+
+    /** Decompression-bomb guard: refuse to decode anything declaring more pixels than this. */
+    public static final long MAX_PIXELS = 250_000_000L;
+
+    private final String formatName;
+    private final int width;
+    private final int height;
+    /** EXIF orientation tag (1-8), 1 when absent. */
+    private final int orientation;
+
+    private final byte[] content;
+    private BufferedImage decoded;
+
+    private ImageAnalysis(String formatName, int width, int height, int orientation, byte[] content) {
+        this.formatName = formatName;
+        this.width = width;
+        this.height = height;
+        this.orientation = orientation;
+        this.content = content;
+    }
+
+    /**
+     * Read the image header only.
+     *
+     * @return null when no ImageIO reader understands the format (e.g. HEIC)
+     * @throws IOException when the header is unreadable or the image exceeds {@link #MAX_PIXELS}
+     */
+    public static ImageAnalysis of(byte[] content) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int w = reader.getWidth(0);
+                int h = reader.getHeight(0);
+                if (w <= 0 || h <= 0 || (long) w * h > MAX_PIXELS) {
+                    throw new IOException("Image dimensions " + w + "x" + h + " exceed the allowed limit");
+                }
+                return new ImageAnalysis(reader.getFormatName().toLowerCase(), w, h, readExifOrientation(content), content);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Width as displayed, i.e. after applying the EXIF orientation. */
+    public int getDisplayWidth() {
+        return orientation >= 5 ? height : width;
+    }
+
+    /** Height as displayed, i.e. after applying the EXIF orientation. */
+    public int getDisplayHeight() {
+        return orientation >= 5 ? width : height;
+    }
+
+    /**
+     * The upright, downsampled image, decoded on first use and then shared. The long edge is at
+     * least {@link #DECODE_LONG_EDGE} unless the source is smaller.
+     */
+    public synchronized BufferedImage getImage() throws IOException {
+        if (decoded == null) {
+            decoded = decodeForEdge(DECODE_LONG_EDGE);
+        }
+        return decoded;
+    }
+
+    /**
+     * A separate upright decode whose long edge is at least {@code longEdge} (or the full size),
+     * for consumers that need more than the shared raster. Not cached.
+     */
+    public BufferedImage decodeForEdge(int longEdge) throws IOException {
+        return orient(decode(longEdge), orientation);
+    }
+
+    /** Drop the decoded raster once every consumer is done; header facts stay available. */
+    public synchronized void release() {
+        decoded = null;
+    }
+
+    private BufferedImage decode(int longEdge) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) throw new IOException("Unsupported image format");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int factor = Math.max(1, Math.max(width, height) / Math.max(1, longEdge));
+                if (factor > 1) param.setSourceSubsampling(factor, factor, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage orient(BufferedImage src, int orientation) {
+        if (orientation <= 1 || orientation > 8) return src;
+        int w = src.getWidth();
+        int h = src.getHeight();
+        AffineTransform t = new AffineTransform();
+        switch (orientation) {
+            case 2 -> { t.translate(w, 0); t.scale(-1, 1); }
+            case 3 -> { t.translate(w, h); t.rotate(Math.PI); }
+            case 4 -> { t.translate(0, h); t.scale(1, -1); }
+            case 5 -> { t.rotate(Math.PI / 2); t.scale(1, -1); }
+            case 6 -> { t.translate(h, 0); t.rotate(Math.PI / 2); }
+            case 7 -> { t.scale(-1, 1); t.translate(-h, 0); t.translate(0, w); t.rotate(3 * Math.PI / 2); }
+            case 8 -> { t.translate(0, w); t.rotate(3 * Math.PI / 2); }
+            default -> { }
+        }
+        boolean swap = orientation >= 5;
+        int type = src.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage out = new BufferedImage(swap ? h : w, swap ? w : h, type);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.drawImage(src, t, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    /**
+     * Orientation tag from a JPEG's APP1/Exif IFD0, or 1 when there is none. Only the first few
+     * segments are walked; nothing past the header is touched.
+     */
+    static int readExifOrientation(byte[] b) {
+        if (b.length < 4 || (b[0] & 0xFF) != 0xFF || (b[1] & 0xFF) != 0xD8) return 1;
+        int pos = 2;
+        while (pos + 4 <= b.length && (b[pos] & 0xFF) == 0xFF) {
+            int marker = b[pos + 1] & 0xFF;
+            int length = ((b[pos + 2] & 0xFF) << 8) | (b[pos + 3] & 0xFF);
+            if (marker == 0xDA || length < 2) break;
+            int start = pos + 4;
+            if (marker == 0xE1 && start + 14 <= b.length && b[start] == 'E' && b[start + 1] == 'x'
+                    && b[start + 2] == 'i' && b[start + 3] == 'f') {
+                return orientationFromTiff(b, start + 6, Math.min(b.length, pos + 2 + length));
+            }
+            pos += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int orientationFromTiff(byte[] b, int tiff, int end) {
+        if (tiff + 8 > end) return 1;
+        boolean little = b[tiff] == 'I';
+        // The offset comes from the file: a crafted one may be negative or point past the segment.
+        long ifd = (long) tiff + readInt(b, tiff + 4, little);
+        if (ifd < tiff || ifd + 2 > end) return 1;
+        int entries = readShort(b, (int) ifd, little);
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > end) break;
+            if (readShort(b, entry, little) == 0x0112) {
+                int value = readShort(b, entry + 8, little);
+                return value >= 1 && value <= 8 ? value : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] b, int pos, boolean little) {
+        return little ? (b[pos] & 0xFF) | ((b[pos + 1] & 0xFF) << 8)
+                : ((b[pos] & 0xFF) << 8) | (b[pos + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] b, int pos, boolean little) {
+        return little ? readShort(b, pos, true) | (readShort(b, pos + 2, true) << 16)
+                : (readShort(b, pos, false) << 16) | readShort(b, pos + 2, false);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.eventphoto.service;
+
+import lombok.Getter;
+
+/**
+ * The hashes of one image. The dHash is always present when the image could be decoded; the pHash
+ * may be computed lazily (see {@link DedupStrategy#DHASH_PHASH}), which is why the upload it came
+ * from is kept alongside.
+ */
+@Getter
+public class ImageHashes {
+
+    private final IngestedUpload upload;
+    private final Long differenceHash;
+    private Long perceptualHash;
+    private boolean perceptualComputed;
+
+    public ImageHashes(IngestedUpload upload, Long differenceHash) {
+        this.upload = upload;
+        this.differenceHash = differenceHash;
+    }
+
+    void setPerceptualHash(Long perceptualHash) {
+        this.perceptualHash = perceptualHash;
+        this.perceptualComputed = true;
+    }
+
+    public boolean isEmpty() {
+        return differenceHash == null && perceptualHash == null;
+    }
+}
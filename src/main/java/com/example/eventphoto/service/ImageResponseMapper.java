@@ -0,0 +1,109 @@
+package com.example.eventphoto.service;
+
+import com.example.eventphoto.dto.ImageResponse;
+import com.example.eventphoto.model.Image;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Single place that turns an {@link Image} into an {@link ImageResponse}, so every listing exposes
+ * the same URLs. Images without renditions (not yet backfilled) fall back to the original. URLs are
+ * expiring signed download URLs (see {@link SignedUrlService}); {@code derivativeUrls} maps each of
+ * {@code derivatives.listing-widths} to a signed resized-derivative URL, for {@code srcset}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ImageResponseMapper {
+
+    private final SignedUrlService signedUrlService;
+
+    @Value("${derivatives.listing-widths:320,640,1280}")
+    private List<Integer> listingWidths;
+
+    public ImageResponse toResponse(Image img) {
+        return toResponses(List.of(img)).get(0);
+    }
+
+    /**
+     * Map a listing, signing all of its URLs in one batch.
+     */
+    public List<ImageResponse> toResponses(Collection<Image> images) {
+        List<String> originals = originalsOf(images);
+        Map<Integer, Map<String, String>> derivatives = new LinkedHashMap<>();
+        for (Integer width : listingWidths) {
+            derivatives.put(width, signedUrlService.derivativeUrls(originals, width, null, null));
+        }
+        return toResponses(images, signedUrlService.urls(keysOf(images)), derivatives);
+    }
+
+    /**
+     * Map with URLs valid until expiresAt instead of the usual listing window, for published snapshots.
+     */
+    public List<ImageResponse> toResponses(Collection<Image> images, Instant expiresAt) {
+        List<String> originals = originalsOf(images);
+        Map<Integer, Map<String, String>> derivatives = new LinkedHashMap<>();
+        for (Integer width : listingWidths) {
+            derivatives.put(width, signedUrlService.derivativeUrls(originals, width, null, null, expiresAt));
+        }
+        return toResponses(images, signedUrlService.urls(keysOf(images), expiresAt), derivatives);
+    }
+
+    private List<ImageResponse> toResponses(Collection<Image> images, Map<String, String> urls,
+                                            Map<Integer, Map<String, String>> derivatives) {
+        return images.stream().map(img -> ImageResponse.builder()
+                .id(img.getId())
+                .fileName(img.getFileName())
+                .originalFileName(img.getOriginalFileName())
+                .storageUrl(urls.get(img.getStorageKey()))
+                .thumbnailUrl(urls.get(thumbnailKey(img)))
+                .previewUrl(urls.get(previewKey(img)))
+                .derivativeUrls(derivativeUrlsOf(img, derivatives))
+                .width(img.getWidth())
+                .height(img.getHeight())
+                .blurHash(img.getBlurHash())
+                .fileSizeMb(img.getFileSizeMb())
+                .contentType(img.getContentType())
+                .eventId(img.getEvent().getId())
+                .guestId(img.getGuest().getId())
+                .guestName(img.getGuest().getName())
+                .uploadedAt(img.getUploadedAt())
+                .build()).collect(Collectors.toList());
+    }
+
+    private static Map<Integer, String> derivativeUrlsOf(Image img, Map<Integer, Map<String, String>> derivatives) {
+        Map<Integer, String> urls = new LinkedHashMap<>();
+        derivatives.forEach((width, byKey) -> urls.put(width, byKey.get(img.getStorageKey())));
+        return urls;
+    }
+
+    private static List<String> originalsOf(Collection<Image> images) {
+        return images.stream().map(Image::getStorageKey).collect(Collectors.toList());
+    }
+
+    private static List<String> keysOf(Collection<Image> images) {
+        List<String> keys = new ArrayList<>(images.size() * 3);
+        for (Image img : images) {
+            keys.add(img.getStorageKey());
+            keys.add(thumbnailKey(img));
+            keys.add(previewKey(img));
+        }
+        return keys;
+    }
+
+    private static String thumbnailKey(Image img) {
+        return img.getThumbnailKey() != null ? img.getThumbnailKey() : img.getStorageKey();
+    }
+
+    private static String previewKey(Image img) {
+        return img.getPreviewKey() != null ? img.getPreviewKey() : img.getStorageKey();
+    }
+}
@@ -2,25 +2,38 @@
 
 import com.example.eventphoto.dto.ImageIdsRequest;
 import com.example.eventphoto.dto.ImageResponse;
+import com.example.eventphoto.dto.UploadFileResult;
 import com.example.eventphoto.model.Event;
 import com.example.eventphoto.model.Guest;
 import com.example.eventphoto.model.Image;
+import com.example.eventphoto.model.UploadItemStatus;
 import com.example.eventphoto.repository.EventRepository;
 import com.example.eventphoto.repository.GuestRepository;
 import com.example.eventphoto.repository.ImageRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.zip.CRC32;
 
 @Service
 @RequiredArgsConstructor
@@ -34,12 +47,102 @@ public class ImageService {
     private final ContentModerationService contentModerationService;
     private final DuplicateDetectionService duplicateDetectionService;
     private final AppPropertyService appPropertyService;
+    private final RenditionService renditionService;
+    private final ImageResponseMapper imageResponseMapper;
+    private final GalleryPublishService galleryPublishService;
+    private final SpriteService spriteService;
+    private final DownscaleService downscaleService;
+    @Qualifier("imageProcessingExecutor")
+    private final ExecutorService imageProcessingExecutor;
+    @Qualifier("storageIoExecutor")
+    private final ExecutorService storageIoExecutor;
+
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${upload.concurrent.enabled:true}")
+    private boolean concurrentUploads;
+
+    @Value("${upload.stream.chunk-size:4}")
+    private int streamChunkSize;
 
     @Transactional
     public List<ImageResponse> upload(Long eventId, Long guestId, MultipartFile[] files) {
         Event event = eventRepository.findById(eventId).orElseThrow(() -> new RuntimeException("Event not found"));
         Guest guest = guestRepository.findById(guestId).orElseThrow(() -> new RuntimeException("Guest not found"));
-        if (!guest.getEvent().getId().equals(eventId)) {
+        checkUploadAllowed(event, guest, files.length);
+        List<UploadSource> sources = Arrays.stream(files)
+                .filter(f -> !f.isEmpty())
+                .map(UploadSource::of)
+                .collect(Collectors.toList());
+        List<UploadFileResult> results = ingest(event, guest, sources);
+        for (UploadFileResult r : results) {
+            if (r.getStatus() == UploadItemStatus.FAILED) {
+                throw new RuntimeException("Upload failed: " + r.getMessage());
+            }
+        }
+        return results.stream()
+                .filter(r -> r.getStatus() == UploadItemStatus.UPLOADED)
+                .map(UploadFileResult::getImage)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Streaming variant of {@link #upload}: every file's outcome is passed to sink as soon as it is
+     * final. Rejections, unreadable files and duplicates are reported straight from the pipeline;
+     * uploaded files once the chunk holding them (upload.stream.chunk-size files, one transaction
+     * each) has committed. A failing chunk reports its remaining files as FAILED and the next chunk
+     * still runs. Result indexes refer to the request's files array. Sink may be called from worker
+     * threads, but never concurrently.
+     */
+    public void uploadStreaming(Long eventId, Long guestId, MultipartFile[] files, Consumer<UploadFileResult> sink) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Event event = eventRepository.findById(eventId).orElseThrow(() -> new RuntimeException("Event not found"));
+            Guest guest = guestRepository.findById(guestId).orElseThrow(() -> new RuntimeException("Guest not found"));
+            checkUploadAllowed(event, guest, files.length);
+        });
+        List<Integer> fileIndexes = new ArrayList<>();
+        for (int i = 0; i < files.length; i++) {
+            if (!files[i].isEmpty()) fileIndexes.add(i);
+        }
+        int chunkSize = Math.max(1, streamChunkSize);
+        for (int from = 0; from < fileIndexes.size(); from += chunkSize) {
+            List<Integer> chunk = fileIndexes.subList(from, Math.min(from + chunkSize, fileIndexes.size()));
+            Set<Integer> reported = ConcurrentHashMap.newKeySet();
+            Consumer<UploadFileResult> emit = r -> {
+                r.setIndex(chunk.get(r.getIndex()));
+                reported.add(r.getIndex());
+                synchronized (sink) {
+                    sink.accept(r);
+                }
+            };
+            List<UploadFileResult> results;
+            try {
+                results = tx.execute(status -> {
+                    Event event = eventRepository.findById(eventId).orElseThrow(() -> new RuntimeException("Event not found"));
+                    Guest guest = guestRepository.findById(guestId).orElseThrow(() -> new RuntimeException("Guest not found"));
+                    List<UploadSource> sources = chunk.stream().map(i -> UploadSource.of(files[i])).collect(Collectors.toList());
+                    return ingest(event, guest, sources, emit);
+                });
+            } catch (RuntimeException e) {
+                log.warn("Streaming upload chunk failed for guest {} event {}: {}", guestId, eventId, e.getMessage());
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (reported.contains(chunk.get(i))) continue;
+                    emit.accept(UploadFileResult.builder()
+                            .index(i)
+                            .originalFileName(files[chunk.get(i)].getOriginalFilename())
+                            .status(UploadItemStatus.FAILED)
+                            .message(e.getMessage())
+                            .build());
+                }
+                continue;
+            }
+            results.stream().filter(r -> r.getStatus() == UploadItemStatus.UPLOADED).forEach(emit);
+        }
+    }
+
+    public void checkUploadAllowed(Event event, Guest guest, int fileCount) {
+        if (!guest.getEvent().getId().equals(event.getId())) {
             throw new RuntimeException("Guest does not belong to this event");
         }
         LocalDateTime now = event.getEventDate().atTime(event.getEventStartTime() != null ? event.getEventStartTime() : java.time.LocalTime.MIN);
@@ -47,57 +150,430 @@ public List<ImageResponse> upload(Long eventId, Long guestId, MultipartFile[] fi
             throw new RuntimeException("Upload is allowed only after event start time");
         }
         int maxPerBatch = appPropertyService.getGuestUploadMaxImagesPerBatch();
-        if (files.length > maxPerBatch) {
+        if (fileCount > maxPerBatch) {
             throw new RuntimeException("Maximum " + maxPerBatch + " images per upload allowed");
         }
+    }
+
+    /**
+     * Moderate, hash, dedup, store and persist a batch of files. Must run inside a transaction.
+     * Returns one result per source, in source order; a file that cannot be read is reported as
+     * FAILED while a storage failure aborts the whole batch.
+     */
+    public List<UploadFileResult> ingest(Event event, Guest guest, List<UploadSource> sources) {
+        return ingest(event, guest, sources, null);
+    }
+
+    /**
+     * {@link #ingest}, additionally passing each file that will not be stored (FAILED, REJECTED,
+     * DUPLICATE) to onSettled as soon as that is known, possibly from worker threads. UPLOADED
+     * results are only returned, since they are not durable until the caller's transaction commits.
+     */
+    public List<UploadFileResult> ingest(Event event, Guest guest, List<UploadSource> sources,
+                                         Consumer<UploadFileResult> onSettled) {
+        Long eventId = event.getId();
+        Long guestId = guest.getId();
+        List<PendingImage> pending = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            pending.add(new PendingImage(i, sources.get(i)));
+        }
+
+        // CPU stage: read, moderate and hash every file (in parallel when enabled)
+        mapInOrder(pending, p -> settled(prepare(p, event, guestId), onSettled), imageProcessingExecutor);
 
-        List<ImageResponse> saved = new ArrayList<>();
-        for (MultipartFile file : files) {
-            if (file.isEmpty()) continue;
-            if (!contentModerationService.isAllowed(file)) {
-                log.warn("Content moderation rejected image: {}", file.getOriginalFilename());
+        // Dedup stage: in file order, against stored images and files accepted earlier in this batch
+        List<PendingImage> accepted = new ArrayList<>();
+        for (PendingImage p : pending) {
+            if (p.status != null) continue;
+            if (p.hashes != null && isDuplicate(eventId, guestId, p.hashes, accepted)) {
+                log.info("Skipping duplicate image for guest {} event {}", guestId, eventId);
+                p.status = UploadItemStatus.DUPLICATE;
+                p.message = "Duplicate of an image already uploaded";
+                settled(p, onSettled);
                 continue;
             }
-            String hash;
-            try {
-                hash = duplicateDetectionService.computeHash(file);
-            } catch (Exception e) {
-                log.warn("Could not compute perceptual hash", e);
-                hash = null;
-            }
-            if (hash != null) {
-                Optional<Long> duplicate = duplicateDetectionService.findDuplicate(eventId, guestId, hash);
-                if (duplicate.isPresent()) {
-                    log.info("Skipping duplicate image for guest {} event {}", guestId, eventId);
-                    continue;
-                }
+            String originalName = p.upload.getOriginalFileName() != null ? p.upload.getOriginalFileName() : "image";
+            String ext = p.downscaled || !originalName.contains(".") ? ".jpg" : originalName.substring(originalName.lastIndexOf('.'));
+            p.originalName = originalName;
+            if (p.source.getStorageKey() != null && !p.downscaled) {
+                p.storageKey = p.source.getStorageKey();
+                p.existing = true;
+            } else {
+                // A re-encoded stored object gets a new .jpg key; the object it replaces goes after commit.
+                p.storageKey = newStorageKey(event, guestId, ext);
             }
-            String originalName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "image";
-            String ext = originalName.contains(".") ? originalName.substring(originalName.lastIndexOf('.')) : ".jpg";
-            String storageKey = event.getStorageFolderPath() + "g" + guestId + "_" + UUID.randomUUID().toString() + ext;
-            try {
-                storageService.upload(storageKey, file.getInputStream(), file.getContentType());
-            } catch (IOException e) {
-                throw new RuntimeException("Upload failed: " + e.getMessage());
-            }
-            double sizeMb = file.getSize() / (1024.0 * 1024.0);
-            Image image = Image.builder()
-                    .fileName(storageKey)
-                    .originalFileName(originalName)
-                    .storageKey(storageKey)
-                    .storageUrl(storageService.getPublicUrl(storageKey))
-                    .fileSizeMb(sizeMb)
-                    .contentType(file.getContentType())
-                    .perceptualHash(hash)
-                    .event(event)
-                    .guest(guest)
-                    .build();
-            image = imageRepository.save(image);
-            guest.setUploadCount(guest.getUploadCount() + 1);
+            accepted.add(p);
+        }
+
+        // I/O stage: storage PUTs for originals not already in storage, plus their renditions
+        try {
+            mapInOrder(accepted, this::store, storageIoExecutor);
+        } catch (RuntimeException e) {
+            accepted.forEach(this::deleteWritten);
+            throw e;
+        }
+
+        // Persist stage: one write for the whole batch
+        List<Image> images = accepted.stream().map(p -> Image.builder()
+                .fileName(p.storageKey)
+                .originalFileName(p.originalName)
+                .storageKey(p.storageKey)
+                .storageUrl(storageService.getPublicUrl(p.storageKey))
+                .originalKey(p.archived ? DownscaleService.archiveKey(p.storageKey) : null)
+                .thumbnailKey(p.renditions != null ? RenditionService.thumbnailKey(p.storageKey) : p.storageKey)
+                .previewKey(p.renditions != null ? RenditionService.previewKey(p.storageKey) : p.storageKey)
+                .width(p.renditions != null ? p.renditions.getWidth() : null)
+                .height(p.renditions != null ? p.renditions.getHeight() : null)
+                .blurHash(p.renditions != null ? p.renditions.getBlurHash() : null)
+                .fileSizeMb(p.upload.getSize() / (1024.0 * 1024.0))
+                .fileSizeBytes(p.upload.getSize())
+                .checksumSha256(p.upload.getSha256())
+                .crc32(p.upload.getCrc32())
+                .contentType(p.upload.getContentType())
+                .perceptualHash(p.hashes != null ? p.hashes.getPerceptualHash() : null)
+                .differenceHash(p.hashes != null ? p.hashes.getDifferenceHash() : null)
+                .event(event)
+                .guest(guest)
+                .build()).collect(Collectors.toList());
+        if (!images.isEmpty()) {
+            images = imageRepository.saveAll(images);
+            guest.setUploadCount(guest.getUploadCount() + images.size());
             guestRepository.save(guest);
-            saved.add(toImageResponse(image));
+            duplicateDetectionService.imagesSaved(images);
+            replaceOnCompletion(
+                    accepted.stream().filter(p -> !p.existing && p.source.getStorageKey() != null)
+                            .map(p -> p.source.getStorageKey()).collect(Collectors.toList()),
+                    List.of());
+        }
+        for (int i = 0; i < accepted.size(); i++) {
+            PendingImage p = accepted.get(i);
+            p.status = UploadItemStatus.UPLOADED;
+            p.image = toImageResponse(images.get(i));
         }
-        return saved;
+        return pending.stream().map(PendingImage::toResult).collect(Collectors.toList());
+    }
+
+    private static PendingImage settled(PendingImage p, Consumer<UploadFileResult> onSettled) {
+        if (onSettled != null && p.status != null) onSettled.accept(p.toResult());
+        return p;
+    }
+
+    private PendingImage prepare(PendingImage p, Event event, Long guestId) {
+        try {
+            p.upload = p.source.open();
+        } catch (IOException e) {
+            p.status = UploadItemStatus.FAILED;
+            p.message = e.getMessage();
+            return p;
+        }
+        if (!isSafe(p.upload)) {
+            log.warn("Content moderation rejected image: {}", p.upload.getOriginalFileName());
+            p.status = UploadItemStatus.REJECTED;
+            p.message = "Rejected by content moderation";
+            return p;
+        }
+        try {
+            IngestedUpload downscaled = downscaleService.apply(event, p.upload);
+            if (downscaled != null) {
+                p.upload.releaseDecoded();
+                if (downscaleService.keepsOriginals(event)) p.original = p.upload;
+                p.upload = downscaled;
+                p.downscaled = true;
+            }
+        } catch (Exception e) {
+            log.warn("Could not downscale {}, keeping it as uploaded", p.upload.getOriginalFileName(), e);
+        }
+        try {
+            p.hashes = duplicateDetectionService.computeHashes(p.upload, event.getId(), guestId);
+        } catch (Exception e) {
+            log.warn("Could not compute perceptual hash", e);
+        }
+        try {
+            p.renditions = renditionService.render(p.upload);
+        } catch (Exception e) {
+            log.warn("Could not render thumbnail/preview for {}", p.upload.getOriginalFileName(), e);
+        }
+        p.upload.releaseDecoded();
+        return p;
+    }
+
+    private PendingImage store(PendingImage p) {
+        try {
+            if (!p.existing) {
+                storageService.upload(p.storageKey, p.upload.getContent(), p.upload.getContentType());
+                p.stored = true;
+            }
+            if (p.original != null) {
+                storageService.uploadArchive(DownscaleService.archiveKey(p.storageKey), p.original.getContent(), p.original.getContentType());
+                p.archived = true;
+                p.original = null;
+            }
+            if (p.renditions != null) {
+                renditionService.store(p.storageKey, p.renditions);
+                p.renditionsStored = true;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Upload failed: " + e.getMessage());
+        }
+        return p;
+    }
+
+    private static String newStorageKey(Event event, Long guestId, String ext) {
+        return event.getStorageFolderPath() + "g" + guestId + "_" + UUID.randomUUID().toString() + ext;
+    }
+
+    /**
+     * Once the current transaction completes, delete the objects its rows no longer point at if it
+     * committed, or the ones it wrote for them if it rolled back.
+     */
+    private void replaceOnCompletion(List<String> replaced, List<String> written) {
+        if (replaced.isEmpty() && written.isEmpty()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                (status == STATUS_COMMITTED ? replaced : written).forEach(ImageService.this::deleteQuietly);
+            }
+        });
+    }
+
+    private void deleteWritten(PendingImage p) {
+        if (p.stored) deleteQuietly(p.storageKey);
+        if (p.archived) deleteQuietly(DownscaleService.archiveKey(p.storageKey));
+        if (p.renditionsStored) {
+            deleteQuietly(RenditionService.thumbnailKey(p.storageKey));
+            deleteQuietly(RenditionService.previewKey(p.storageKey));
+        }
+    }
+
+    private boolean isDuplicate(Long eventId, Long guestId, ImageHashes hashes, List<PendingImage> acceptedInBatch) {
+        for (PendingImage other : acceptedInBatch) {
+            if (duplicateDetectionService.isDuplicate(hashes, other.hashes)) return true;
+        }
+        return duplicateDetectionService.findDuplicate(eventId, guestId, hashes).isPresent();
+    }
+
+    /**
+     * Apply fn to every item, on the executor when concurrent uploads are enabled, and return results
+     * in input order. The first failure is rethrown unwrapped once all tasks have finished.
+     */
+    private <T, R> List<R> mapInOrder(List<T> items, Function<T, R> fn, ExecutorService executor) {
+        if (!concurrentUploads || items.size() < 2) {
+            return items.stream().map(fn).collect(Collectors.toList());
+        }
+        List<CompletableFuture<R>> futures = items.stream()
+                .map(item -> CompletableFuture.supplyAsync(() -> fn.apply(item), executor))
+                .collect(Collectors.toList());
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new RuntimeException("Upload failed: " + e.getCause().getMessage());
+        }
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    /**
+     * Remove the original and its renditions (rendition keys equal the original for undecodable files).
+     */
+    private void deleteStoredObjects(Image image) {
+        deleteQuietly(image.getStorageKey());
+        if (image.getOriginalKey() != null) deleteQuietly(image.getOriginalKey());
+        if (image.getThumbnailKey() != null && !image.getThumbnailKey().equals(image.getStorageKey())) {
+            deleteQuietly(image.getThumbnailKey());
+        }
+        if (image.getPreviewKey() != null && !image.getPreviewKey().equals(image.getStorageKey())) {
+            deleteQuietly(image.getPreviewKey());
+        }
+    }
+
+    private void deleteQuietly(String storageKey) {
+        try {
+            storageService.deleteFile(storageKey);
+        } catch (Exception e) {
+            log.warn("Could not delete file from storage: {}", storageKey);
+        }
+    }
+
+    private static final class PendingImage {
+        private final int index;
+        private final UploadSource source;
+        private IngestedUpload upload;
+        /** The upload as received, kept only until archived when the event keeps originals. */
+        private IngestedUpload original;
+        private boolean downscaled;
+        private volatile boolean archived;
+        private ImageHashes hashes;
+        private String originalName;
+        private String storageKey;
+        private boolean existing;
+        private RenditionService.Renditions renditions;
+        private volatile boolean stored;
+        private volatile boolean renditionsStored;
+        private UploadItemStatus status;
+        private String message;
+        private ImageResponse image;
+
+        private PendingImage(int index, UploadSource source) {
+            this.index = index;
+            this.source = source;
+        }
+
+        private UploadFileResult toResult() {
+            return UploadFileResult.builder()
+                    .index(index)
+                    .originalFileName(source.getOriginalFileName())
+                    .status(status)
+                    .message(message)
+                    .imageId(image != null ? image.getId() : null)
+                    .image(image)
+                    .build();
+        }
+    }
+
+    /**
+     * A file to ingest. Opening it reads the bytes exactly once, on the processing pool.
+     */
+    public interface UploadSource {
+        String getOriginalFileName();
+
+        IngestedUpload open() throws IOException;
+
+        /**
+         * Key of an object that is already in storage (e.g. an assembled chunked upload); it is
+         * registered as-is instead of being written again, unless it is downscaled: then the JPEG
+         * goes to a new key and this object is deleted once the batch commits. The caller owns its
+         * cleanup when the file is not accepted.
+         */
+        default String getStorageKey() {
+            return null;
+        }
+
+        static UploadSource of(MultipartFile file) {
+            return new UploadSource() {
+                @Override
+                public String getOriginalFileName() {
+                    return file.getOriginalFilename();
+                }
+
+                @Override
+                public IngestedUpload open() throws IOException {
+                    return IngestedUpload.from(file);
+                }
+            };
+        }
+    }
+
+    /**
+     * Moderate, hash and dedup an image whose bytes went straight to storage. The image is removed
+     * (row and object) when it is rejected or duplicates an earlier upload by the same guest.
+     */
+    @Transactional
+    public void analyzeStoredImage(Long imageId) {
+        Image image = imageRepository.findById(imageId).orElse(null);
+        if (image == null) return;
+        IngestedUpload upload;
+        try (InputStream in = storageService.getFileStream(image.getStorageKey())) {
+            upload = IngestedUpload.read(in, image.getOriginalFileName(), image.getContentType(),
+                    image.getFileSizeBytes() != null ? image.getFileSizeBytes() : -1);
+        } catch (IOException e) {
+            log.warn("Could not read stored image {}: {}", imageId, e.getMessage());
+            return;
+        }
+        if (!isSafe(upload)) {
+            log.warn("Content moderation rejected image: {}", image.getOriginalFileName());
+            removeImage(image);
+            return;
+        }
+        Event event = image.getEvent();
+        try {
+            IngestedUpload downscaled = downscaleService.apply(event, upload);
+            if (downscaled != null) {
+                // The JPEG goes to a new key, so the uploaded object is never overwritten in place.
+                String previousKey = image.getStorageKey();
+                String jpegKey = newStorageKey(event, image.getGuest().getId(), ".jpg");
+                List<String> written = new ArrayList<>();
+                try {
+                    if (downscaleService.keepsOriginals(event)) {
+                        String archiveKey = DownscaleService.archiveKey(jpegKey);
+                        storageService.uploadArchive(archiveKey, upload.getContent(), upload.getContentType());
+                        written.add(archiveKey);
+                        image.setOriginalKey(archiveKey);
+                    }
+                    storageService.upload(jpegKey, downscaled.getContent(), downscaled.getContentType());
+                    written.add(jpegKey);
+                } catch (IOException e) {
+                    written.forEach(this::deleteQuietly);
+                    image.setOriginalKey(null);
+                    throw e;
+                }
+                image.setStorageKey(jpegKey);
+                image.setFileName(jpegKey);
+                image.setStorageUrl(storageService.getPublicUrl(jpegKey));
+                replaceOnCompletion(List.of(previousKey), written);
+                upload.releaseDecoded();
+                upload = downscaled;
+                image.setFileSizeBytes(upload.getSize());
+                image.setFileSizeMb(upload.getSize() / (1024.0 * 1024.0));
+            }
+        } catch (IOException e) {
+            log.warn("Could not downscale image {}, keeping it as uploaded", imageId, e);
+        }
+        ImageHashes hashes = null;
+        try {
+            hashes = duplicateDetectionService.computeHashes(upload, event.getId(), image.getGuest().getId());
+        } catch (Exception e) {
+            log.warn("Could not compute perceptual hash", e);
+        }
+        if (hashes != null) {
+            Optional<Long> duplicate = duplicateDetectionService.findDuplicate(image.getEvent().getId(), image.getGuest().getId(), hashes);
+            if (duplicate.isPresent() && !duplicate.get().equals(imageId)) {
+                log.info("Removing duplicate image {} for guest {}", imageId, image.getGuest().getId());
+                removeImage(image);
+                return;
+            }
+            image.setPerceptualHash(hashes.getPerceptualHash());
+            image.setDifferenceHash(hashes.getDifferenceHash());
+        }
+        try {
+            RenditionService.Renditions renditions = renditionService.render(upload);
+            if (renditions != null) {
+                renditionService.store(image.getStorageKey(), renditions);
+                image.setThumbnailKey(RenditionService.thumbnailKey(image.getStorageKey()));
+                image.setPreviewKey(RenditionService.previewKey(image.getStorageKey()));
+                RenditionService.applyPlaceholder(image, renditions);
+            } else {
+                image.setThumbnailKey(image.getStorageKey());
+                image.setPreviewKey(image.getStorageKey());
+            }
+        } catch (IOException e) {
+            log.warn("Could not render thumbnail/preview for image {}", imageId, e);
+        }
+        image.setChecksumSha256(upload.getSha256());
+        image.setCrc32(upload.getCrc32());
+        image.setContentType(upload.getContentType());
+        duplicateDetectionService.imagesSaved(List.of(image));
+    }
+
+    private void removeImage(Image image) {
+        deleteStoredObjects(image);
+        imageRepository.delete(image);
+        duplicateDetectionService.imagesDeleted(List.of(image));
+        galleryPublishService.imagesDeleted(image.getEvent().getId());
+        spriteService.imagesDeleted(image.getEvent().getId());
+    }
+
+    /**
+     * Images in the same event that look like the given one, whichever guest uploaded them.
+     */
+    @Transactional
+    public List<ImageResponse> findSimilar(Long eventId, Long imageId) {
+        Image image = imageRepository.findById(imageId).orElseThrow(() -> new RuntimeException("Image not found"));
+        if (!image.getEvent().getId().equals(eventId)) {
+            throw new RuntimeException("Image not found");
+        }
+        List<Long> ids = duplicateDetectionService.findSimilarInEvent(image);
+        if (ids.isEmpty()) return List.of();
+        return imageResponseMapper.toResponses(imageRepository.findByIdIn(ids));
     }
 
     @Transactional(readOnly = true)
@@ -112,13 +588,14 @@ public void bulkDelete(List<Long> imageIds, Long customerId) {
             if (!img.getEvent().getCustomer().getId().equals(customerId)) {
                 throw new RuntimeException("Access denied to delete image");
             }
-            try {
-                storageService.deleteFile(img.getStorageKey());
-            } catch (Exception e) {
-                log.warn("Could not delete file from storage: {}", img.getStorageKey());
-            }
+            deleteStoredObjects(img);
             imageRepository.delete(img);
         }
+        duplicateDetectionService.imagesDeleted(images);
+        images.stream().map(img -> img.getEvent().getId()).distinct().forEach(eventId -> {
+            galleryPublishService.imagesDeleted(eventId);
+            spriteService.imagesDeleted(eventId);
+        });
     }
 
     @Transactional
@@ -127,50 +604,85 @@ public void guestDeleteOwnImage(Long imageId, Long guestId) {
         if (!image.getGuest().getId().equals(guestId)) {
             throw new RuntimeException("You can only delete your own images");
         }
-        try {
-            storageService.deleteFile(image.getStorageKey());
-        } catch (Exception e) {
-            log.warn("Could not delete file from storage: {}", image.getStorageKey());
-        }
+        deleteStoredObjects(image);
         imageRepository.delete(image);
+        duplicateDetectionService.imagesDeleted(List.of(image));
+        galleryPublishService.imagesDeleted(image.getEvent().getId());
+        spriteService.imagesDeleted(image.getEvent().getId());
     }
 
-    @Transactional(readOnly = true)
-    public byte[] downloadAsZip(List<Long> imageIds, Long customerId) throws IOException {
-        List<Image> images = imageRepository.findByIdIn(imageIds);
+    /**
+     * Deterministic archive of the selected images: entries in image id order, STORED with the CRC32
+     * and size recorded at ingest, so it can be served (and resumed) by byte range without being
+     * built. Images from before those were recorded get them computed once here and persisted.
+     */
+    @Transactional
+    public VirtualZip zipArchive(List<Long> imageIds, Long customerId) throws IOException {
+        List<Image> images = new ArrayList<>(imageRepository.findByIdIn(imageIds));
         for (Image img : images) {
             if (!img.getEvent().getCustomer().getId().equals(customerId)) {
                 throw new RuntimeException("Access denied");
             }
         }
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
-            for (Image img : images) {
-                byte[] bytes = storageService.getFileBytes(img.getStorageKey());
-                String entryName = img.getOriginalFileName() != null ? img.getOriginalFileName() : img.getFileName();
-                if (images.size() > 1) {
-                    entryName = img.getGuest().getName().replaceAll("[^a-zA-Z0-9.-]", "_") + "_" + entryName;
-                }
-                zos.putNextEntry(new ZipEntry(entryName));
-                zos.write(bytes);
-                zos.closeEntry();
-            }
-        }
-        return baos.toByteArray();
-    }
-
-    private ImageResponse toImageResponse(Image img) {
-        return ImageResponse.builder()
-                .id(img.getId())
-                .fileName(img.getFileName())
-                .originalFileName(img.getOriginalFileName())
-                .storageUrl(storageService.getPublicUrl(img.getStorageKey()))
-                .fileSizeMb(img.getFileSizeMb())
-                .contentType(img.getContentType())
-                .eventId(img.getEvent().getId())
-                .guestId(img.getGuest().getId())
-                .guestName(img.getGuest().getName())
-                .uploadedAt(img.getUploadedAt())
-                .build();
+        images.sort(Comparator.comparing(Image::getId));
+        List<VirtualZip.Item> items = new ArrayList<>(images.size());
+        for (Image img : images) {
+            if (img.getCrc32() == null || img.getFileSizeBytes() == null) {
+                recordChecksum(img);
+            }
+            String entryName = downloadName(img);
+            if (images.size() > 1) {
+                entryName = img.getGuest().getName().replaceAll("[^a-zA-Z0-9.-]", "_") + "_" + entryName;
+            }
+            items.add(VirtualZip.Item.builder()
+                    .name(entryName)
+                    .storageKey(img.getStorageKey())
+                    .size(img.getFileSizeBytes())
+                    .crc32(img.getCrc32())
+                    .dosDateTime(ZipLayout.dosDateTime(img.getUploadedAt()))
+                    .build());
+        }
+        return VirtualZip.of(items);
+    }
+
+    /**
+     * File name for downloads: the uploaded name, with a ".jpg" extension when the stored bytes are a
+     * JPEG re-encoded from another format (downscaled PNG/HEIC uploads).
+     */
+    static String downloadName(Image img) {
+        String name = img.getOriginalFileName() != null ? img.getOriginalFileName() : img.getFileName();
+        if (!"image/jpeg".equals(img.getContentType()) || name == null) return name;
+        int dot = name.lastIndexOf('.');
+        String ext = dot > 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        if (ext.equals("jpg") || ext.equals("jpeg") || ext.equals("jpe")) return name;
+        return (dot > 0 ? name.substring(0, dot) : name) + ".jpg";
+    }
+
+    private void recordChecksum(Image img) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = storageService.getFileStream(img.getStorageKey())) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+                size += n;
+            }
+        }
+        img.setCrc32(crc.getValue());
+        img.setFileSizeBytes(size);
+    }
+
+    private boolean isSafe(IngestedUpload upload) {
+        try {
+            return contentModerationService.isSafe(upload);
+        } catch (Exception e) {
+            log.warn("Content moderation failed for {}", upload.getOriginalFileName(), e);
+            return false;
+        }
+    }
+
+    public ImageResponse toImageResponse(Image img) {
+        return imageResponseMapper.toResponse(img);
     }
 }
@@ -0,0 +1,153 @@
+package com.example.eventphoto.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.zip.CRC32;
+
+/**
+ * An uploaded file read exactly once from its source stream. The single pass tees the bytes into
+ * an in-memory buffer, a SHA-256 digest, a CRC32 and a content-type sniffer, so moderation,
+ * hashing and the storage write all share the same bytes instead of re-opening the part. Pixel
+ * work goes through {@link #analysis()}, which decodes at most once per upload.
+ */
+@Getter
+public class IngestedUpload {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_EXACT_SIZE = Integer.MAX_VALUE - 8;
+
+    private final String originalFileName;
+    private final String contentType;
+    private final byte[] content;
+    private final String sha256;
+    private final long crc32;
+
+    @Getter(AccessLevel.NONE)
+    private ImageAnalysis analysis;
+    @Getter(AccessLevel.NONE)
+    private boolean analyzed;
+
+    private IngestedUpload(String originalFileName, String contentType, byte[] content, String sha256, long crc32) {
+        this.originalFileName = originalFileName;
+        this.contentType = contentType;
+        this.content = content;
+        this.sha256 = sha256;
+        this.crc32 = crc32;
+    }
+
+    public static IngestedUpload from(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return read(in, file.getOriginalFilename(), file.getContentType(), file.getSize());
+        }
+    }
+
+    public static IngestedUpload read(InputStream in, String originalFileName, String declaredContentType, long sizeHint) throws IOException {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        CRC32 crc = new CRC32();
+        byte[] content;
+        if (sizeHint > 0 && sizeHint <= MAX_EXACT_SIZE) {
+            // Known size: fill an exactly sized array, so the bytes are held once
+            content = new byte[(int) sizeHint];
+            int filled = in.readNBytes(content, 0, content.length);
+            if (filled < content.length) {
+                content = Arrays.copyOf(content, filled);
+            } else {
+                byte[] rest = in.readAllBytes();
+                if (rest.length > 0) {
+                    int declared = content.length;
+                    content = Arrays.copyOf(content, declared + rest.length);
+                    System.arraycopy(rest, 0, content, declared, rest.length);
+                }
+            }
+            sha.update(content);
+            crc.update(content);
+        } else {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_SIZE);
+            byte[] chunk = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                buffer.write(chunk, 0, n);
+                sha.update(chunk, 0, n);
+                crc.update(chunk, 0, n);
+            }
+            content = buffer.toByteArray();
+        }
+        String sniffed = sniffContentType(content);
+        return new IngestedUpload(originalFileName, sniffed != null ? sniffed : declaredContentType, content,
+                HexFormat.of().formatHex(sha.digest()), crc.getValue());
+    }
+
+    public long getSize() {
+        return content.length;
+    }
+
+    public boolean isEmpty() {
+        return content.length == 0;
+    }
+
+    public InputStream openStream() {
+        return new ByteArrayInputStream(content);
+    }
+
+    /**
+     * Header-level analysis shared by every stage that looks at the pixels; read on first call.
+     *
+     * @return null when ImageIO cannot read the format
+     * @throws IOException when the header is corrupt or the image is too large to decode safely
+     */
+    public synchronized ImageAnalysis analysis() throws IOException {
+        if (!analyzed) {
+            analysis = ImageAnalysis.of(content);
+            analyzed = true;
+        }
+        return analysis;
+    }
+
+    /**
+     * Free the decoded raster after the analysis stages; header facts stay cached.
+     */
+    public synchronized void releaseDecoded() {
+        if (analysis != null) analysis.release();
+    }
+
+    /**
+     * Detect the image format from magic bytes; returns null when the format is not recognised.
+     */
+    static String sniffContentType(byte[] b) {
+        if (b.length >= 3 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xD8 && (b[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (b.length >= 8 && (b[0] & 0xFF) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G') {
+            return "image/png";
+        }
+        if (b.length >= 6 && b[0] == 'G' && b[1] == 'I' && b[2] == 'F' && b[3] == '8') {
+            return "image/gif";
+        }
+        if (b.length >= 12 && b[0] == 'R' && b[1] == 'I' && b[2] == 'F' && b[3] == 'F'
+                && b[8] == 'W' && b[9] == 'E' && b[10] == 'B' && b[11] == 'P') {
+            return "image/webp";
+        }
+        if (b.length >= 12 && b[4] == 'f' && b[5] == 't' && b[6] == 'y' && b[7] == 'p') {
+            String brand = new String(b, 8, 4, java.nio.charset.StandardCharsets.US_ASCII);
+            if (brand.startsWith("hei") || brand.startsWith("hev") || brand.equals("mif1") || brand.equals("msf1")) {
+                return "image/heic";
+            }
+        }
+        return null;
+    }
+}
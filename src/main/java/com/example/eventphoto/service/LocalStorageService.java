@@ -1,21 +1,47 @@
 package com.example.eventphoto.service;
 
+import com.example.eventphoto.security.UrlSigner;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-@Service
+@Service("storageBackend")
 @Profile("!prod")
+@RequiredArgsConstructor
 public class LocalStorageService implements StorageService {
 
+    private final UrlSigner urlSigner;
+
     @Value("${storage.local.base-path:./uploads}")
     private String basePath;
 
@@ -37,6 +63,51 @@ public void upload(String storageKey, InputStream content, String contentType) t
         Files.copy(content, path);
     }
 
+    @Override
+    public void upload(String storageKey, byte[] content, String contentType) throws IOException {
+        Path path = Paths.get(basePath, storageKey);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content);
+    }
+
+    /**
+     * Conditional writes are serialized in this JVM, which is all a local store is shared with. The
+     * file is replaced atomically, and its modification time always moves so the ETag changes.
+     */
+    @Override
+    public synchronized boolean uploadIfMatch(String storageKey, byte[] content, String contentType, String expectedEtag) throws IOException {
+        Optional<StoredObjectInfo> current = stat(storageKey);
+        if (expectedEtag == null ? current.isPresent()
+                : current.isEmpty() || !expectedEtag.equals(current.get().getEtag())) {
+            return false;
+        }
+        Path path = Paths.get(basePath, storageKey);
+        Files.createDirectories(path.getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        Files.write(tmp, content);
+        if (current.isPresent()) {
+            long previous = current.get().getLastModified().toEpochMilli();
+            if (Files.getLastModifiedTime(tmp).toMillis() <= previous) {
+                Files.setLastModifiedTime(tmp, FileTime.fromMillis(previous + 1));
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    @Override
+    public List<String> listKeys(String prefix) throws IOException {
+        Path root = Paths.get(basePath);
+        Path dir = prefix.endsWith("/") ? root.resolve(prefix) : root.resolve(prefix).getParent();
+        if (dir == null || !Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> walk = Files.walk(dir)) {
+            return walk.filter(Files::isRegularFile)
+                    .map(p -> root.relativize(p).toString().replace(File.separatorChar, '/'))
+                    .filter(key -> key.startsWith(prefix))
+                    .collect(Collectors.toList());
+        }
+    }
+
     @Override
     public void delete(String storageKey) throws IOException {
         deleteFile(storageKey);
@@ -48,11 +119,45 @@ public void deleteFile(String storageKey) throws IOException {
         if (Files.exists(path)) Files.delete(path);
     }
 
+    @Override
+    public void deleteAll(String prefix) throws IOException {
+        Path dir = Paths.get(basePath, prefix);
+        if (!prefix.endsWith("/") || !Files.isDirectory(dir)) {
+            throw new IOException("Only directory prefixes can be deleted locally: " + prefix);
+        }
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
     @Override
     public String getPublicUrl(String storageKey) {
         return "/api/files?key=" + java.net.URLEncoder.encode(storageKey, java.nio.charset.StandardCharsets.UTF_8);
     }
 
+    @Override
+    public String createDownloadUrl(String storageKey, Instant expiresAt) {
+        long expires = expiresAt.getEpochSecond();
+        return downloadUrl(storageKey, expires, urlSigner.sign("GET", storageKey, expires));
+    }
+
+    @Override
+    public Map<String, String> createDownloadUrls(Collection<String> storageKeys, Instant expiresAt) {
+        long expires = expiresAt.getEpochSecond();
+        Map<String, String> urls = new LinkedHashMap<>();
+        urlSigner.signAll("GET", storageKeys, expires)
+                .forEach((key, sig) -> urls.put(key, downloadUrl(key, expires, sig)));
+        return urls;
+    }
+
+    private static String downloadUrl(String storageKey, long expires, String signature) {
+        return "/api/files?key=" + URLEncoder.encode(storageKey, StandardCharsets.UTF_8)
+                + "&exp=" + expires
+                + "&sig=" + signature;
+    }
+
     @Override
     public InputStream getFileStream(String storageKey) throws IOException {
         return Files.newInputStream(Paths.get(basePath, storageKey));
@@ -63,6 +168,122 @@ public byte[] getFileBytes(String storageKey) throws IOException {
         return Files.readAllBytes(Paths.get(basePath, storageKey));
     }
 
+    @Override
+    public InputStream getFileStream(String storageKey, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(basePath, storageKey), StandardOpenOption.READ);
+        channel.position(offset);
+        return new FilterInputStream(Channels.newInputStream(channel)) {
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) return -1;
+                int b = super.read();
+                if (b >= 0) remaining--;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buf, int off, int len) throws IOException {
+                if (remaining <= 0) return -1;
+                int n = super.read(buf, off, (int) Math.min(len, remaining));
+                if (n > 0) remaining -= n;
+                return n;
+            }
+        };
+    }
+
+    @Override
+    public void transferTo(String storageKey, long offset, long length, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(basePath, storageKey), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = offset;
+            long remaining = length;
+            while (remaining > 0) {
+                long n = channel.transferTo(position, remaining, target);
+                if (n <= 0) break;
+                position += n;
+                remaining -= n;
+            }
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String storageKey) {
+        Path base = Paths.get(basePath).toAbsolutePath().normalize();
+        Path path = base.resolve(storageKey).normalize();
+        return path.startsWith(base) && Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @Override
+    public Optional<StoredObjectInfo> stat(String storageKey) throws IOException {
+        Path path = Paths.get(basePath, storageKey);
+        if (!Files.isRegularFile(path)) return Optional.empty();
+        long size = Files.size(path);
+        Instant lastModified = Files.getLastModifiedTime(path).toInstant();
+        return Optional.of(StoredObjectInfo.builder()
+                .size(size)
+                .contentType(Files.probeContentType(path))
+                .lastModified(lastModified)
+                .etag(Long.toHexString(size) + "-" + Long.toHexString(lastModified.toEpochMilli()))
+                .build());
+    }
+
+    @Override
+    public String createUploadUrl(String storageKey, String contentType, Duration ttl) {
+        long expires = Instant.now().plus(ttl).getEpochSecond();
+        return "/api/files/upload?key=" + URLEncoder.encode(storageKey, StandardCharsets.UTF_8)
+                + "&exp=" + expires
+                + "&sig=" + urlSigner.sign("PUT", storageKey, expires);
+    }
+
+    @Override
+    public String createMultipartUpload(String storageKey, String contentType) throws IOException {
+        String uploadId = UUID.randomUUID().toString();
+        Files.createDirectories(multipartDir(uploadId));
+        return uploadId;
+    }
+
+    @Override
+    public void uploadPart(String storageKey, String uploadId, int partNumber, byte[] content) throws IOException {
+        Path dir = multipartDir(uploadId);
+        if (!Files.isDirectory(dir)) throw new IOException("Unknown upload: " + uploadId);
+        Files.write(dir.resolve(String.format("part-%05d", partNumber)), content);
+    }
+
+    @Override
+    public void completeMultipartUpload(String storageKey, String uploadId) throws IOException {
+        Path dir = multipartDir(uploadId);
+        Path target = Paths.get(basePath, storageKey);
+        Files.createDirectories(target.getParent());
+        List<Path> parts;
+        try (Stream<Path> listing = Files.list(dir)) {
+            parts = listing.sorted().collect(Collectors.toList());
+        }
+        try (OutputStream out = Files.newOutputStream(target)) {
+            for (Path part : parts) {
+                Files.copy(part, out);
+            }
+        }
+        abortMultipartUpload(storageKey, uploadId);
+    }
+
+    @Override
+    public void abortMultipartUpload(String storageKey, String uploadId) throws IOException {
+        Path dir = multipartDir(uploadId);
+        if (!Files.isDirectory(dir)) return;
+        try (Stream<Path> listing = Files.list(dir)) {
+            for (Path part : listing.collect(Collectors.toList())) {
+                Files.deleteIfExists(part);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private Path multipartDir(String uploadId) {
+        return Paths.get(basePath, ".multipart", uploadId);
+    }
+
     private static String getExtension(String name) {
         if (name == null || !name.contains(".")) return ".jpg";
         return name.substring(name.lastIndexOf('.'));
@@ -0,0 +1,81 @@
+package com.example.eventphoto.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream into a storage object that holds at most one part in memory: full parts are sent
+ * as a multipart upload, and an object that fits in one part is written with a plain upload. The
+ * object only appears once {@link #finish} succeeds; on failure call {@link #abort}.
+ */
+@Slf4j
+public class MultipartObjectWriter extends OutputStream {
+
+    private final StorageService storageService;
+    private final String key;
+    private final String contentType;
+    private final int partSize;
+    private final ByteArrayOutputStream part = new ByteArrayOutputStream();
+    private String uploadId;
+    private int partNumber;
+    private long written;
+
+    /**
+     * @param partSize bytes per part; at least the S3 minimum of 5 MB
+     */
+    public MultipartObjectWriter(StorageService storageService, String key, String contentType, int partSize) {
+        this.storageService = storageService;
+        this.key = key;
+        this.contentType = contentType;
+        this.partSize = Math.max(1, partSize);
+    }
+
+    /** Bytes written so far. */
+    public long getWritten() {
+        return written;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, partSize - part.size());
+            part.write(b, off, n);
+            off += n;
+            len -= n;
+            written += n;
+            if (part.size() >= partSize) uploadPart();
+        }
+    }
+
+    public void finish() throws IOException {
+        if (uploadId == null) {
+            storageService.upload(key, part.toByteArray(), contentType);
+        } else {
+            if (part.size() > 0) uploadPart();
+            storageService.completeMultipartUpload(key, uploadId);
+        }
+    }
+
+    public void abort() {
+        if (uploadId == null) return;
+        try {
+            storageService.abortMultipartUpload(key, uploadId);
+        } catch (IOException e) {
+            log.warn("Could not abort multipart upload of {}", key);
+        }
+    }
+
+    private void uploadPart() throws IOException {
+        if (uploadId == null) uploadId = storageService.createMultipartUpload(key, contentType);
+        storageService.uploadPart(key, uploadId, ++partNumber, part.toByteArray());
+        part.reset();
+    }
+}
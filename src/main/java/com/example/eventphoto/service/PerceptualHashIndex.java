@@ -0,0 +1,224 @@
+package com.example.eventphoto.service;
+
+import com.example.eventphoto.repository.ImageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-event in-memory index of perceptual hashes (pHash and dHash), grouped by guest and held as
+ * primitive {@code long} arrays. An event is loaded from the database on first lookup, kept current by
+ * {@link #add}/{@link #remove} after commits, and dropped once it has been idle for a while.
+ * Lookups are a popcount scan over the guest's array; pHash lookups allocate nothing.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PerceptualHashIndex {
+
+    public static final long NOT_FOUND = -1L;
+
+    private final ImageRepository imageRepository;
+    private final Map<Long, EventHashes> events = new ConcurrentHashMap<>();
+
+    @Value("${dedup.index.idle-minutes:30}")
+    private long idleMinutes;
+
+    /**
+     * @return id of the first image of this guest whose pHash differs from {@code pHash} in at most
+     * {@code maxBits} bits, or {@link #NOT_FOUND}
+     */
+    public long findWithin(Long eventId, Long guestId, long pHash, int maxBits) {
+        EventHashes entry = loaded(eventId);
+        GuestHashes guest = entry.guests.get(guestId);
+        return guest == null ? NOT_FOUND : guest.findWithin(pHash, maxBits);
+    }
+
+    /**
+     * Two-stage lookup: every image of this guest whose dHash is within {@code maxDBits} of
+     * {@code dHash} (or that has no dHash) is handed to the confirmer, which decides on the pHash.
+     * The candidates are copied out first, so the confirmer runs without holding the guest's lock
+     * and may take its time (storage reads, backfills via {@link #add}).
+     *
+     * @return id of the first confirmed image, or {@link #NOT_FOUND}
+     */
+    public long findConfirmed(Long eventId, Long guestId, long dHash, int maxDBits, Confirmer confirmer) {
+        EventHashes entry = loaded(eventId);
+        GuestHashes guest = entry.guests.get(guestId);
+        if (guest == null) return NOT_FOUND;
+        Candidates candidates = guest.candidates(dHash, maxDBits);
+        for (int i = 0; i < candidates.size; i++) {
+            if (confirmer.confirm(candidates.ids[i], candidates.pHashes[i])) return candidates.ids[i];
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Whether {@link #findConfirmed} would hand anything to a confirmer for this dHash.
+     */
+    public boolean hasCandidate(Long eventId, Long guestId, long dHash, int maxDBits) {
+        EventHashes entry = loaded(eventId);
+        GuestHashes guest = entry.guests.get(guestId);
+        return guest != null && guest.hasCandidate(dHash, maxDBits);
+    }
+
+    public void add(Long eventId, Long guestId, long imageId, Long pHash, Long dHash) {
+        EventHashes entry = events.get(eventId);
+        if (entry == null) return;
+        GuestHashes guest;
+        synchronized (entry) {
+            // Not loaded yet: the lazy load will read this image from the database.
+            if (!entry.loaded) return;
+            guest = entry.guests.computeIfAbsent(guestId, id -> new GuestHashes());
+        }
+        guest.add(imageId, pHash, dHash);
+    }
+
+    public void remove(Long eventId, Long guestId, long imageId) {
+        EventHashes entry = events.get(eventId);
+        if (entry == null) return;
+        GuestHashes guest = entry.guests.get(guestId);
+        if (guest != null) guest.remove(imageId);
+    }
+
+    public void evict(Long eventId) {
+        events.remove(eventId);
+    }
+
+    @Scheduled(fixedDelayString = "${dedup.index.sweep-ms:60000}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMinutes * 60_000L;
+        events.entrySet().removeIf(e -> e.getValue().lastAccess < cutoff);
+    }
+
+    private EventHashes loaded(Long eventId) {
+        EventHashes entry = events.computeIfAbsent(eventId, id -> new EventHashes());
+        entry.lastAccess = System.currentTimeMillis();
+        if (entry.loaded) return entry;
+        synchronized (entry) {
+            if (!entry.loaded) {
+                // Hold the entry lock through the query so add() calls issued meanwhile apply on top of it.
+                Map<Long, GuestHashes> guests = new HashMap<>();
+                int count = 0;
+                for (Object[] row : imageRepository.findHashesByEventId(eventId)) {
+                    guests.computeIfAbsent((Long) row[1], id -> new GuestHashes()).add((Long) row[0], (Long) row[2], (Long) row[3]);
+                    count++;
+                }
+                entry.guests.putAll(guests);
+                entry.loaded = true;
+                log.debug("Loaded {} perceptual hashes for event {}", count, eventId);
+            }
+        }
+        return entry;
+    }
+
+    private static class EventHashes {
+        final Map<Long, GuestHashes> guests = new ConcurrentHashMap<>();
+        volatile boolean loaded;
+        volatile long lastAccess = System.currentTimeMillis();
+    }
+
+    /**
+     * Decides whether a dHash candidate really is a duplicate. {@code storedPHash} is null when the
+     * candidate has no pHash yet; a confirmer that computes one can report it back via {@link #add}.
+     */
+    @FunctionalInterface
+    public interface Confirmer {
+        boolean confirm(long imageId, Long storedPHash);
+    }
+
+    /** dHash candidates copied out of a guest's arrays; a null pHash means none is stored yet. */
+    private static final class Candidates {
+        private long[] ids = new long[4];
+        private Long[] pHashes = new Long[4];
+        private int size;
+
+        private void add(long id, Long pHash) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                pHashes = Arrays.copyOf(pHashes, size * 2);
+            }
+            ids[size] = id;
+            pHashes[size] = pHash;
+            size++;
+        }
+    }
+
+    private static class GuestHashes {
+        private static final byte HAS_P = 1;
+        private static final byte HAS_D = 2;
+
+        private long[] ids = new long[16];
+        private long[] pHashes = new long[16];
+        private long[] dHashes = new long[16];
+        private byte[] present = new byte[16];
+        private int size;
+
+        synchronized long findWithin(long pHash, int maxBits) {
+            for (int i = 0; i < size; i++) {
+                if ((present[i] & HAS_P) != 0 && Long.bitCount(pHashes[i] ^ pHash) <= maxBits) return ids[i];
+            }
+            return NOT_FOUND;
+        }
+
+        synchronized Candidates candidates(long dHash, int maxDBits) {
+            Candidates candidates = new Candidates();
+            for (int i = 0; i < size; i++) {
+                if ((present[i] & HAS_D) != 0 && Long.bitCount(dHashes[i] ^ dHash) > maxDBits) continue;
+                candidates.add(ids[i], (present[i] & HAS_P) != 0 ? pHashes[i] : null);
+            }
+            return candidates;
+        }
+
+        synchronized boolean hasCandidate(long dHash, int maxDBits) {
+            for (int i = 0; i < size; i++) {
+                if ((present[i] & HAS_D) == 0 || Long.bitCount(dHashes[i] ^ dHash) <= maxDBits) return true;
+            }
+            return false;
+        }
+
+        synchronized void add(long imageId, Long pHash, Long dHash) {
+            int i = 0;
+            while (i < size && ids[i] != imageId) i++;
+            if (i == size) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    pHashes = Arrays.copyOf(pHashes, size * 2);
+                    dHashes = Arrays.copyOf(dHashes, size * 2);
+                    present = Arrays.copyOf(present, size * 2);
+                }
+                ids[i] = imageId;
+                present[i] = 0;
+                size++;
+            }
+            if (pHash != null) {
+                pHashes[i] = pHash;
+                present[i] |= HAS_P;
+            }
+            if (dHash != null) {
+                dHashes[i] = dHash;
+                present[i] |= HAS_D;
+            }
+        }
+
+        synchronized void remove(long imageId) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == imageId) {
+                    size--;
+                    ids[i] = ids[size];
+                    pHashes[i] = pHashes[size];
+                    dHashes[i] = dHashes[size];
+                    present[i] = present[size];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.eventphoto.service;
+
+import com.example.eventphoto.dto.BackfillResponse;
+import com.example.eventphoto.model.Image;
+import com.example.eventphoto.repository.ImageRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Fixed-size JPEG renditions stored next to each original: a 256px thumbnail for grids and a
+ * ~1600px preview for the lightbox, plus a BlurHash placeholder and the display dimensions so grids
+ * can lay out before any image loads. All are derived from the shared {@link ImageAnalysis} decode,
+ * so producing them costs no extra read of the original.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RenditionService {
+
+    public static final int THUMBNAIL_EDGE = 256;
+    public static final int PREVIEW_EDGE = ImageAnalysis.DECODE_LONG_EDGE;
+    /** The placeholder is computed from a tiny copy; BlurHash cost scales with pixel count. */
+    private static final int PLACEHOLDER_EDGE = 32;
+    /** Header bytes fetched to read an original's dimensions and EXIF orientation during backfill. */
+    private static final int HEADER_BYTES = 256 * 1024;
+
+    private final StorageService storageService;
+    private final ImageRepository imageRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${renditions.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    /**
+     * Encode both renditions in memory.
+     *
+     * @return null when the format cannot be decoded (e.g. HEIC); listings then fall back to the original
+     */
+    public Renditions render(IngestedUpload upload) throws IOException {
+        ImageAnalysis analysis = upload.analysis();
+        if (analysis == null) return null;
+        BufferedImage source = analysis.getImage();
+        BufferedImage preview = scaleToFit(source, PREVIEW_EDGE);
+        BufferedImage thumbnail = scaleToFit(preview, THUMBNAIL_EDGE);
+        return new Renditions(encodeJpeg(thumbnail, jpegQuality), encodeJpeg(preview, jpegQuality),
+                analysis.getDisplayWidth(), analysis.getDisplayHeight(), placeholder(thumbnail));
+    }
+
+    /**
+     * 4x3-component BlurHash of an (already small) image.
+     */
+    public static String placeholder(BufferedImage image) {
+        return BlurHash.encode(scaleToFit(image, PLACEHOLDER_EDGE), 4, 3);
+    }
+
+    /**
+     * Copy dimensions and placeholder onto the image; undecodable files get neither.
+     */
+    public static void applyPlaceholder(Image image, Renditions renditions) {
+        if (renditions == null) return;
+        image.setWidth(renditions.getWidth());
+        image.setHeight(renditions.getHeight());
+        image.setBlurHash(renditions.getBlurHash());
+    }
+
+    /**
+     * Write renditions under keys derived from the original's key.
+     */
+    public void store(String originalKey, Renditions renditions) throws IOException {
+        storageService.upload(thumbnailKey(originalKey), renditions.getThumbnail(), "image/jpeg");
+        storageService.upload(previewKey(originalKey), renditions.getPreview(), "image/jpeg");
+    }
+
+    /**
+     * Render and store renditions for images created before the pipeline existed: up to limit images
+     * with ids above afterId, each committed on its own. Images that fail keep no renditions and are
+     * paged past, so they never block later ones.
+     */
+    public BackfillResponse backfill(long afterId, int limit) {
+        List<Image> images = imageRepository.findByThumbnailKeyIsNullAndIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit));
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int done = 0;
+        for (Image image : images) {
+            try (InputStream in = storageService.getFileStream(image.getStorageKey())) {
+                IngestedUpload upload = IngestedUpload.read(in, image.getOriginalFileName(), image.getContentType(),
+                        image.getFileSizeBytes() != null ? image.getFileSizeBytes() : -1);
+                Renditions renditions = render(upload);
+                if (renditions != null) store(image.getStorageKey(), renditions);
+                tx.executeWithoutResult(status -> imageRepository.findById(image.getId()).ifPresent(row -> {
+                    if (renditions == null) {
+                        // Undecodable: point the renditions at the original so it is not retried forever.
+                        row.setThumbnailKey(row.getStorageKey());
+                        row.setPreviewKey(row.getStorageKey());
+                    } else {
+                        row.setThumbnailKey(thumbnailKey(row.getStorageKey()));
+                        row.setPreviewKey(previewKey(row.getStorageKey()));
+                        applyPlaceholder(row, renditions);
+                    }
+                }));
+                done++;
+            } catch (Exception e) {
+                log.warn("Could not backfill renditions for image {}", image.getId(), e);
+            }
+        }
+        return page(done, images, afterId);
+    }
+
+    /**
+     * Fill in dimensions and BlurHash for images that already have renditions but predate
+     * placeholders. The hash comes from the stored thumbnail and the dimensions from the original's
+     * header, so the original is not downloaded in full. Pages by id like {@link #backfill}, one
+     * transaction per image.
+     */
+    public BackfillResponse backfillPlaceholders(long afterId, int limit) {
+        List<Image> images = imageRepository.findMissingPlaceholders(afterId, PageRequest.of(0, limit));
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int done = 0;
+        for (Image image : images) {
+            try {
+                BufferedImage thumbnail;
+                try (InputStream in = storageService.getFileStream(image.getThumbnailKey())) {
+                    thumbnail = ImageIO.read(in);
+                }
+                if (thumbnail == null) throw new IOException("Unreadable thumbnail " + image.getThumbnailKey());
+                ImageAnalysis header = readHeader(image);
+                String blurHash = placeholder(thumbnail);
+                tx.executeWithoutResult(status -> imageRepository.findById(image.getId()).ifPresent(row -> {
+                    row.setWidth(header != null ? header.getDisplayWidth() : null);
+                    row.setHeight(header != null ? header.getDisplayHeight() : null);
+                    row.setBlurHash(blurHash);
+                }));
+                done++;
+            } catch (Exception e) {
+                log.warn("Could not backfill placeholder for image {}", image.getId(), e);
+            }
+        }
+        return page(done, images, afterId);
+    }
+
+    private static BackfillResponse page(int processed, List<Image> scanned, long afterId) {
+        return BackfillResponse.builder()
+                .processed(processed)
+                .scanned(scanned.size())
+                .nextAfterId(scanned.isEmpty() ? afterId : scanned.get(scanned.size() - 1).getId())
+                .build();
+    }
+
+    private ImageAnalysis readHeader(Image image) throws IOException {
+        long size = image.getFileSizeBytes() != null ? image.getFileSizeBytes() : -1;
+        if (size > HEADER_BYTES) {
+            byte[] head;
+            try (InputStream in = storageService.getFileStream(image.getStorageKey(), 0, HEADER_BYTES)) {
+                head = in.readAllBytes();
+            }
+            try {
+                ImageAnalysis analysis = ImageAnalysis.of(head);
+                if (analysis != null) return analysis;
+            } catch (IOException e) {
+                // Metadata larger than the prefix; fall through to the whole file.
+            }
+        }
+        return ImageAnalysis.of(storageService.getFileBytes(image.getStorageKey()));
+    }
+
+    public static String thumbnailKey(String originalKey) {
+        return baseName(originalKey) + "_thumb.jpg";
+    }
+
+    public static String previewKey(String originalKey) {
+        return baseName(originalKey) + "_preview.jpg";
+    }
+
+    private static String baseName(String key) {
+        int dot = key.lastIndexOf('.');
+        return dot > key.lastIndexOf('/') ? key.substring(0, dot) : key;
+    }
+
+    /**
+     * Downscale so the long edge is at most maxEdge, halving with bilinear steps to avoid the
+     * aliasing of a single large bilinear reduction. Alpha is flattened onto white for JPEG.
+     */
+    public static BufferedImage scaleToFit(BufferedImage src, int maxEdge) {
+        return scaleToBox(src, maxEdge, maxEdge);
+    }
+
+    /**
+     * Downscale to fit inside maxWidth x maxHeight keeping the aspect ratio; never upscales.
+     */
+    public static BufferedImage scaleToBox(BufferedImage src, int maxWidth, int maxHeight) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        double scale = Math.min(1.0, Math.min((double) maxWidth / w, (double) maxHeight / h));
+        int targetW = Math.max(1, (int) Math.round(w * scale));
+        int targetH = Math.max(1, (int) Math.round(h * scale));
+        BufferedImage current = src;
+        int cw = w;
+        int ch = h;
+        do {
+            cw = Math.max(targetW, cw / 2);
+            ch = Math.max(targetH, ch / 2);
+            BufferedImage next = new BufferedImage(cw, ch, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, cw, ch, Color.WHITE, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (cw != targetW || ch != targetH);
+        return current;
+    }
+
+    public static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    @Getter
+    public static class Renditions {
+        private final byte[] thumbnail;
+        private final byte[] preview;
+        private final int width;
+        private final int height;
+        private final String blurHash;
+
+        public Renditions(byte[] thumbnail, byte[] preview, int width, int height, String blurHash) {
+            this.thumbnail = thumbnail;
+            this.preview = preview;
+            this.width = width;
+            this.height = height;
+            this.blurHash = blurHash;
+        }
+    }
+}
@@ -4,17 +4,29 @@
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
-@Service
+@Service("storageBackend")
 @Profile("prod")
 public class S3StorageService implements StorageService {
 
@@ -24,10 +36,25 @@ public class S3StorageService implements StorageService {
     @Value("${aws.s3.region:ap-south-1}")
     private String region;
 
+    @Value("${aws.s3.archive-storage-class:STANDARD_IA}")
+    private String archiveStorageClass;
+
+    /**
+     * Remaining lifetime the SDK guarantees for temporary credentials (assumed role, instance profile,
+     * SSO); it refreshes them well before they expire, so an hour is safe for the default chain.
+     */
+    @Value("${aws.s3.session-credential-hours:1}")
+    private long sessionCredentialHours;
+
+    /** The same default chain the presigner signs with. */
+    private final AwsCredentialsProvider credentialsProvider = DefaultCredentialsProvider.create();
+
     private final S3Client s3Client;
+    private final S3Presigner s3Presigner;
 
-    public S3StorageService(S3Client s3Client) {
+    public S3StorageService(S3Client s3Client, S3Presigner s3Presigner) {
         this.s3Client = s3Client;
+        this.s3Presigner = s3Presigner;
     }
 
     @Override
@@ -45,7 +72,11 @@ public String uploadFile(MultipartFile file, String eventCode) throws IOExceptio
 
     @Override
     public void upload(String storageKey, InputStream content, String contentType) throws IOException {
-        byte[] bytes = content.readAllBytes();
+        upload(storageKey, content.readAllBytes(), contentType);
+    }
+
+    @Override
+    public void upload(String storageKey, byte[] bytes, String contentType) {
         PutObjectRequest req = PutObjectRequest.builder()
                 .bucket(bucketName)
                 .key(storageKey)
@@ -54,6 +85,17 @@ public void upload(String storageKey, InputStream content, String contentType) t
         s3Client.putObject(req, RequestBody.fromBytes(bytes));
     }
 
+    @Override
+    public void uploadArchive(String storageKey, byte[] bytes, String contentType) {
+        PutObjectRequest req = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(storageKey)
+                .contentType(contentType != null ? contentType : "application/octet-stream")
+                .storageClass(archiveStorageClass)
+                .build();
+        s3Client.putObject(req, RequestBody.fromBytes(bytes));
+    }
+
     @Override
     public void delete(String storageKey) {
         deleteFile(storageKey);
@@ -64,16 +106,90 @@ public void deleteFile(String storageKey) {
         s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucketName).key(storageKey).build());
     }
 
+    @Override
+    public boolean uploadIfMatch(String storageKey, byte[] bytes, String contentType, String expectedEtag) {
+        PutObjectRequest req = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(storageKey)
+                .contentType(contentType != null ? contentType : "application/octet-stream")
+                // S3 conditional writes; this SDK version has no builder fields for them.
+                .overrideConfiguration(AwsRequestOverrideConfiguration.builder()
+                        .putHeader(expectedEtag == null ? "If-None-Match" : "If-Match",
+                                expectedEtag == null ? "*" : expectedEtag)
+                        .build())
+                .build();
+        try {
+            s3Client.putObject(req, RequestBody.fromBytes(bytes));
+            return true;
+        } catch (S3Exception e) {
+            // 412: the object changed; 409: a concurrent conditional write to it is in progress.
+            if (e.statusCode() == 412 || e.statusCode() == 409) return false;
+            throw e;
+        }
+    }
+
+    @Override
+    public List<String> listKeys(String prefix) {
+        ListObjectsV2Request list = ListObjectsV2Request.builder().bucket(bucketName).prefix(prefix).build();
+        List<String> keys = new ArrayList<>();
+        for (ListObjectsV2Response page : s3Client.listObjectsV2Paginator(list)) {
+            page.contents().forEach(o -> keys.add(o.key()));
+        }
+        return keys;
+    }
+
+    @Override
+    public void deleteAll(String prefix) {
+        ListObjectsV2Request list = ListObjectsV2Request.builder().bucket(bucketName).prefix(prefix).build();
+        for (ListObjectsV2Response page : s3Client.listObjectsV2Paginator(list)) {
+            if (page.contents().isEmpty()) continue;
+            // One page holds at most 1000 keys, the DeleteObjects limit.
+            s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                    .bucket(bucketName)
+                    .delete(Delete.builder()
+                            .objects(page.contents().stream()
+                                    .map(o -> ObjectIdentifier.builder().key(o.key()).build())
+                                    .collect(Collectors.toList()))
+                            .quiet(true)
+                            .build())
+                    .build());
+        }
+    }
+
     @Override
     public String getPublicUrl(String storageKey) {
         return String.format("https://%s.s3.%s.amazonaws.com/%s", bucketName, region, storageKey);
     }
 
+    @Override
+    public String createDownloadUrl(String storageKey, Instant expiresAt) {
+        Duration ttl = Duration.between(Instant.now(), expiresAt);
+        return s3Presigner.presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(ttl.isNegative() || ttl.isZero() ? Duration.ofSeconds(1) : ttl)
+                .getObjectRequest(GetObjectRequest.builder().bucket(bucketName).key(storageKey).build())
+                .build()).url().toString();
+    }
+
+    /** Presigned URLs are limited to 7 days, and to the session when signed with temporary credentials. */
+    @Override
+    public Duration maxDownloadUrlTtl() {
+        if (credentialsProvider.resolveCredentials() instanceof AwsSessionCredentials) {
+            return Duration.ofHours(sessionCredentialHours);
+        }
+        return Duration.ofDays(7);
+    }
+
     @Override
     public InputStream getFileStream(String storageKey) throws IOException {
         return s3Client.getObject(GetObjectRequest.builder().bucket(bucketName).key(storageKey).build());
     }
 
+    @Override
+    public InputStream getFileStream(String storageKey, long offset, long length) {
+        return s3Client.getObject(GetObjectRequest.builder().bucket(bucketName).key(storageKey)
+                .range("bytes=" + offset + "-" + (offset + length - 1)).build());
+    }
+
     @Override
     public byte[] getFileBytes(String storageKey) throws IOException {
         try (InputStream is = getFileStream(storageKey)) {
@@ -81,6 +197,86 @@ public byte[] getFileBytes(String storageKey) throws IOException {
         }
     }
 
+    @Override
+    public Optional<StoredObjectInfo> stat(String storageKey) {
+        try {
+            HeadObjectResponse head = s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(storageKey).build());
+            return Optional.of(StoredObjectInfo.builder()
+                    .size(head.contentLength())
+                    .contentType(head.contentType())
+                    .lastModified(head.lastModified())
+                    .etag(head.eTag())
+                    .build());
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public String createUploadUrl(String storageKey, String contentType, Duration ttl) {
+        PutObjectRequest put = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(storageKey)
+                .contentType(contentType != null ? contentType : "application/octet-stream")
+                // Signed, so the URL only creates the object: once it exists S3 answers 412.
+                .overrideConfiguration(AwsRequestOverrideConfiguration.builder()
+                        .putHeader("If-None-Match", "*")
+                        .build())
+                .build();
+        return s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(ttl)
+                .putObjectRequest(put)
+                .build()).url().toString();
+    }
+
+    @Override
+    public String createMultipartUpload(String storageKey, String contentType) {
+        return s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(storageKey)
+                .contentType(contentType != null ? contentType : "application/octet-stream")
+                .build()).uploadId();
+    }
+
+    @Override
+    public void uploadPart(String storageKey, String uploadId, int partNumber, byte[] content) {
+        s3Client.uploadPart(UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(storageKey)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .build(), RequestBody.fromBytes(content));
+    }
+
+    @Override
+    public void completeMultipartUpload(String storageKey, String uploadId) {
+        // Part ETags are read back from S3 so callers never have to persist them between requests.
+        List<CompletedPart> parts = s3Client.listPartsPaginator(ListPartsRequest.builder()
+                        .bucket(bucketName)
+                        .key(storageKey)
+                        .uploadId(uploadId)
+                        .build())
+                .parts().stream()
+                .map(part -> CompletedPart.builder().partNumber(part.partNumber()).eTag(part.eTag()).build())
+                .sorted(Comparator.comparing(CompletedPart::partNumber))
+                .collect(Collectors.toList());
+        s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(storageKey)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+    }
+
+    @Override
+    public void abortMultipartUpload(String storageKey, String uploadId) {
+        s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(storageKey)
+                .uploadId(uploadId)
+                .build());
+    }
+
     private static String getExtension(String name) {
         if (name == null || !name.contains(".")) return ".jpg";
         return name.substring(name.lastIndexOf('.'));
@@ -1,5 +1,6 @@
 package com.example.eventphoto.service;
 
+import com.example.eventphoto.dto.ImageResponse;
 import com.example.eventphoto.dto.SharedLinkCreateRequest;
 import com.example.eventphoto.dto.SharedLinkResponse;
 import com.example.eventphoto.model.*;
@@ -11,6 +12,7 @@
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -23,7 +25,7 @@ public class ShareLinkService {
     private final SharedLinkRepository sharedLinkRepository;
     private final ImageRepository imageRepository;
     private final EventRepository eventRepository;
-    private final StorageService storageService;
+    private final ImageResponseMapper imageResponseMapper;
     private final PasswordEncoder passwordEncoder;
 
     private static final int SHARE_CODE_LENGTH = 12;
@@ -91,15 +93,47 @@ public SharedLinkResponse getByShareCodePublic(String shareCode, String password
                 throw new RuntimeException("Invalid or missing password");
             }
         }
+        return toPublicResponse(link, null);
+    }
+
+    /**
+     * Links whose public view can be published as a static snapshot: active, unexpired and
+     * without a password (a static object cannot check one).
+     */
+    @Transactional(readOnly = true)
+    public List<String> findPublishableShareCodes(Long eventId) {
+        return sharedLinkRepository.findByEventIdAndIsActiveTrueAndAccessPasswordHashIsNull(eventId).stream()
+                .filter(link -> !link.isExpired())
+                .map(SharedLink::getShareCode)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The public view of a publishable link with image URLs valid until urlExpiresAt, or null when
+     * the link no longer qualifies.
+     */
+    @Transactional(readOnly = true)
+    public SharedLinkResponse publicSnapshot(String shareCode, Instant urlExpiresAt) {
+        SharedLink link = sharedLinkRepository.findByShareCode(shareCode).orElse(null);
+        if (link == null || !link.getIsActive() || link.isExpired() || link.getAccessPasswordHash() != null) {
+            return null;
+        }
+        return toPublicResponse(link, urlExpiresAt);
+    }
+
+    private SharedLinkResponse toPublicResponse(SharedLink link, Instant urlExpiresAt) {
+        List<Image> images = link.getImages() != null ? link.getImages() : List.of();
+        List<ImageResponse> responses = urlExpiresAt == null
+                ? imageResponseMapper.toResponses(images)
+                : imageResponseMapper.toResponses(images, urlExpiresAt);
         return SharedLinkResponse.builder()
                 .shareCode(link.getShareCode())
                 .folderName(link.getFolderName())
                 .hasExpiry(link.getExpiresAt() != null)
                 .expiresAt(link.getExpiresAt())
-                .imageCount(link.getImages() != null ? link.getImages().size() : 0)
-                .imageUrls(link.getImages() == null ? List.of() : link.getImages().stream()
-                        .map(img -> storageService.getPublicUrl(img.getStorageKey()))
-                        .collect(Collectors.toList()))
+                .imageCount(images.size())
+                .imageUrls(responses.stream().map(ImageResponse::getStorageUrl).collect(Collectors.toList()))
+                .thumbnailUrls(responses.stream().map(ImageResponse::getThumbnailUrl).collect(Collectors.toList()))
                 .build();
     }
 
@@ -0,0 +1,200 @@
+package com.example.eventphoto.service;
+
+import com.example.eventphoto.security.UrlSigner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Expiring download URLs for listings. Expiries are aligned to fixed windows, so every request in
+ * the same window gets the identical URL for a key: it is signed once and cached, and browsers/CDNs
+ * see a stable URL to cache the bytes under. A URL is always valid for at least {@code ttl-seconds}.
+ * With signing disabled the plain public URLs are returned.
+ */
+@Service
+public class SignedUrlService {
+
+    private final StorageService storageService;
+    private final UrlSigner urlSigner;
+    private final boolean enabled;
+    private final long ttlSeconds;
+    private final long windowSeconds;
+    private final int maxCachedUrls;
+
+    private volatile Window current = new Window(Long.MIN_VALUE);
+
+    public SignedUrlService(StorageService storageService,
+                            UrlSigner urlSigner,
+                            @Value("${storage.signed-urls.enabled:true}") boolean enabled,
+                            @Value("${storage.signed-urls.ttl-seconds:3600}") long ttlSeconds,
+                            @Value("${storage.signed-urls.window-seconds:900}") long windowSeconds,
+                            @Value("${storage.signed-urls.max-cached:100000}") int maxCachedUrls) {
+        this.storageService = storageService;
+        this.urlSigner = urlSigner;
+        this.enabled = enabled;
+        this.ttlSeconds = ttlSeconds;
+        this.windowSeconds = Math.max(1, windowSeconds);
+        this.maxCachedUrls = maxCachedUrls;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String url(String storageKey) {
+        if (storageKey == null) return null;
+        return urls(List.of(storageKey)).get(storageKey);
+    }
+
+    /**
+     * Download URLs for all keys (nulls skipped), signing only those not already cached for the
+     * current window, in one backend call.
+     */
+    public Map<String, String> urls(Collection<String> storageKeys) {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (!enabled) {
+            for (String key : storageKeys) {
+                if (key != null) result.put(key, storageService.getPublicUrl(key));
+            }
+            return result;
+        }
+        Window window = window();
+        List<String> missing = new ArrayList<>();
+        for (String key : storageKeys) {
+            if (key == null || result.containsKey(key)) continue;
+            String cached = window.urls.get(key);
+            if (cached != null) {
+                result.put(key, cached);
+            } else {
+                result.put(key, null);
+                missing.add(key);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, String> signed = storageService.createDownloadUrls(missing,
+                    Instant.ofEpochSecond(window.start + windowSeconds + ttlSeconds));
+            if (window.urls.size() + signed.size() > maxCachedUrls) window.urls.clear();
+            window.urls.putAll(signed);
+            result.putAll(signed);
+        }
+        return result;
+    }
+
+    /**
+     * URL of a resized derivative (see {@code /api/files/derivative}). While signing is enabled the
+     * URL carries an expiry and an HMAC over the key and the size parameters, aligned to the same
+     * windows as listing URLs, and the endpoint serves nothing else.
+     */
+    public String derivativeUrl(String storageKey, Integer width, Integer height, Integer quality) {
+        if (storageKey == null) return null;
+        return derivativeUrls(List.of(storageKey), width, height, quality).get(storageKey);
+    }
+
+    /**
+     * Derivative URLs of one size for all keys (nulls skipped), cached per window like {@link #urls}.
+     */
+    public Map<String, String> derivativeUrls(Collection<String> storageKeys, Integer width, Integer height, Integer quality) {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (!enabled) {
+            for (String key : storageKeys) {
+                if (key != null) result.put(key, derivativePath(key, width, height, quality));
+            }
+            return result;
+        }
+        Window window = window();
+        long expires = window.start + windowSeconds + ttlSeconds;
+        for (String key : storageKeys) {
+            if (key == null || result.containsKey(key)) continue;
+            String resource = derivativeResource(key, width, height, quality);
+            String url = window.urls.get(resource);
+            if (url == null) {
+                url = signedDerivativeUrl(key, width, height, quality, expires);
+                if (window.urls.size() >= maxCachedUrls) window.urls.clear();
+                window.urls.put(resource, url);
+            }
+            result.put(key, url);
+        }
+        return result;
+    }
+
+    /**
+     * Derivative URLs valid until expiresAt, bypassing the window cache (published snapshots).
+     */
+    public Map<String, String> derivativeUrls(Collection<String> storageKeys, Integer width, Integer height,
+                                              Integer quality, Instant expiresAt) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String key : storageKeys) {
+            if (key == null) continue;
+            result.put(key, enabled ? signedDerivativeUrl(key, width, height, quality, expiresAt.getEpochSecond())
+                    : derivativePath(key, width, height, quality));
+        }
+        return result;
+    }
+
+    private String signedDerivativeUrl(String storageKey, Integer width, Integer height, Integer quality, long expires) {
+        return derivativePath(storageKey, width, height, quality) + "&exp=" + expires
+                + "&sig=" + urlSigner.sign("GET", derivativeResource(storageKey, width, height, quality), expires);
+    }
+
+    private static String derivativePath(String storageKey, Integer width, Integer height, Integer quality) {
+        return "/api/files/derivative?key=" + URLEncoder.encode(storageKey, StandardCharsets.UTF_8)
+                + (width != null ? "&w=" + width : "")
+                + (height != null ? "&h=" + height : "")
+                + (quality != null ? "&q=" + quality : "");
+    }
+
+    /**
+     * What a derivative URL's signature covers: the key and every size parameter.
+     */
+    public static String derivativeResource(String storageKey, Integer width, Integer height, Integer quality) {
+        return "derivative\n" + storageKey + "\n" + width + "x" + height + "q" + quality;
+    }
+
+    /**
+     * Download URLs with an explicit expiry, bypassing the window cache; for snapshots that are
+     * published and must stay valid far longer than a listing (see {@link GalleryPublishService}).
+     */
+    public Map<String, String> urls(Collection<String> storageKeys, Instant expiresAt) {
+        List<String> keys = storageKeys.stream().filter(k -> k != null).distinct().toList();
+        if (!enabled) {
+            Map<String, String> result = new LinkedHashMap<>();
+            keys.forEach(key -> result.put(key, storageService.getPublicUrl(key)));
+            return result;
+        }
+        return storageService.createDownloadUrls(keys, expiresAt);
+    }
+
+    private Window window() {
+        long now = Instant.now().getEpochSecond();
+        long start = now - Math.floorMod(now, windowSeconds);
+        Window window = current;
+        if (window.start != start) {
+            synchronized (this) {
+                window = current;
+                if (window.start != start) {
+                    window = new Window(start);
+                    current = window;
+                }
+            }
+        }
+        return window;
+    }
+
+    private static final class Window {
+        private final long start;
+        private final Map<String, String> urls = new ConcurrentHashMap<>();
+
+        private Window(long start) {
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.eventphoto.service;
+
+import com.example.eventphoto.dto.SpriteResponse;
+import com.example.eventphoto.dto.SpriteTile;
+import com.example.eventphoto.model.Image;
+import com.example.eventphoto.repository.ImageRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Contact-sheet sprites: one JPEG holding the thumbnails of a page of images plus a JSON manifest of
+ * tile positions, so a grid costs one request instead of one per image. Both are stored under a key
+ * derived from the sorted image ids and the tile layout, so any page with the same images reuses
+ * them; concurrent requests for the same page share one build. A sheet with tiles that could not be
+ * read is served from a separate {@code -partial} key and not recorded, so the next request retries.
+ * Deleting images of an event drops all of its sprites.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SpriteService {
+
+    public static final int MAX_TILES = 400;
+
+    private final ImageRepository imageRepository;
+    private final StorageService storageService;
+    private final SignedUrlService signedUrlService;
+    private final ObjectMapper objectMapper;
+    @Qualifier("storageIoExecutor")
+    private final ExecutorService storageIoExecutor;
+
+    @Value("${sprites.tile-size:160}")
+    private int tileSize;
+
+    @Value("${sprites.columns:10}")
+    private int columns;
+
+    @Value("${renditions.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    private final Map<String, CompletableFuture<SpriteResponse>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Sprite and manifest for these images of the event, built on first request. Tiles are laid out
+     * in ascending image id order; clients locate an image through the manifest.
+     */
+    public SpriteResponse getSprite(Long eventId, List<Long> imageIds) throws IOException {
+        if (imageIds == null || imageIds.isEmpty()) {
+            throw new RuntimeException("No images selected");
+        }
+        List<Long> ids = new ArrayList<>(new TreeSet<>(imageIds));
+        if (ids.size() > MAX_TILES) {
+            throw new RuntimeException("At most " + MAX_TILES + " images per sprite");
+        }
+        String baseKey = "sprites/" + eventId + "/" + sha256(tileSize + "|" + columns + "|"
+                + ids.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        SpriteResponse manifest = readManifest(baseKey + ".json");
+        if (manifest != null && imageRepository.countByEventIdAndIdIn(eventId, ids) != ids.size()) {
+            // A sprite can outlive a deletion that raced its build; never serve tiles of deleted images.
+            throw new RuntimeException("Image not found");
+        }
+        if (manifest == null) {
+            manifest = buildOnce(baseKey, eventId, ids);
+        }
+        manifest.setSpriteUrl(signedUrlService.url(manifest.getSpriteKey()));
+        return manifest;
+    }
+
+    /**
+     * Drop every sprite of the event once the deleting transaction commits, so no sheet keeps showing
+     * a deleted image.
+     */
+    public void imagesDeleted(Long eventId) {
+        Runnable purge = () -> storageIoExecutor.execute(() -> {
+            try {
+                storageService.deleteAll("sprites/" + eventId + "/");
+            } catch (IOException e) {
+                log.warn("Could not delete sprites of event {}", eventId, e);
+            }
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    purge.run();
+                }
+            });
+        } else {
+            purge.run();
+        }
+    }
+
+    private SpriteResponse buildOnce(String baseKey, Long eventId, List<Long> ids) throws IOException {
+        CompletableFuture<SpriteResponse> mine = new CompletableFuture<>();
+        CompletableFuture<SpriteResponse> existing = inFlight.putIfAbsent(baseKey, mine);
+        if (existing != null) {
+            try {
+                return copyOf(existing.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException io) throw io;
+                throw e;
+            }
+        }
+        try {
+            SpriteResponse built = build(baseKey, eventId, ids);
+            mine.complete(built);
+            return copyOf(built);
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(baseKey, mine);
+        }
+    }
+
+    private SpriteResponse build(String baseKey, Long eventId, List<Long> ids) throws IOException {
+        Map<Long, Image> images = imageRepository.findByIdIn(ids).stream()
+                .collect(Collectors.toMap(Image::getId, Function.identity()));
+        for (Long id : ids) {
+            Image image = images.get(id);
+            if (image == null || !image.getEvent().getId().equals(eventId)) {
+                throw new RuntimeException("Image not found");
+            }
+        }
+        // Fetch and decode thumbnails in parallel on the I/O pool, then draw them in order.
+        List<CompletableFuture<Thumbnail>> thumbnails = ids.stream()
+                .map(id -> CompletableFuture.supplyAsync(() -> readThumbnail(images.get(id)), storageIoExecutor))
+                .collect(Collectors.toList());
+
+        int cols = Math.min(columns, ids.size());
+        int rows = (ids.size() + cols - 1) / cols;
+        BufferedImage sheet = new BufferedImage(cols * tileSize, rows * tileSize, BufferedImage.TYPE_INT_RGB);
+        List<SpriteTile> tiles = new ArrayList<>(ids.size());
+        boolean complete = true;
+        Graphics2D g = sheet.createGraphics();
+        try {
+            g.setColor(new Color(0xEEEEEE));
+            g.fillRect(0, 0, sheet.getWidth(), sheet.getHeight());
+            for (int i = 0; i < ids.size(); i++) {
+                int cellX = (i % cols) * tileSize;
+                int cellY = (i / cols) * tileSize;
+                Thumbnail thumbnail = thumbnails.get(i).join();
+                if (thumbnail.image == null) {
+                    complete &= !thumbnail.readFailed;
+                    tiles.add(SpriteTile.builder().imageId(ids.get(i)).x(cellX).y(cellY).width(0).height(0).build());
+                    continue;
+                }
+                BufferedImage tile = RenditionService.scaleToFit(thumbnail.image, tileSize);
+                int x = cellX + (tileSize - tile.getWidth()) / 2;
+                int y = cellY + (tileSize - tile.getHeight()) / 2;
+                g.drawImage(tile, x, y, null);
+                tiles.add(SpriteTile.builder().imageId(ids.get(i)).x(x).y(y)
+                        .width(tile.getWidth()).height(tile.getHeight()).build());
+            }
+        } finally {
+            g.dispose();
+        }
+
+        SpriteResponse manifest = SpriteResponse.builder()
+                .spriteKey(complete ? baseKey + ".jpg" : baseKey + "-partial.jpg")
+                .width(sheet.getWidth())
+                .height(sheet.getHeight())
+                .tileSize(tileSize)
+                .columns(cols)
+                .tiles(tiles)
+                .build();
+        storageService.upload(manifest.getSpriteKey(), RenditionService.encodeJpeg(sheet, jpegQuality), "image/jpeg");
+        if (!complete) {
+            log.warn("Sprite {} is missing thumbnails that could not be read; not recording it", baseKey);
+            return manifest;
+        }
+        // The manifest goes last: its presence means the sprite is complete.
+        storageService.upload(baseKey + ".json", objectMapper.writeValueAsBytes(manifest), "application/json");
+        try {
+            storageService.delete(baseKey + "-partial.jpg");
+        } catch (IOException e) {
+            log.warn("Could not delete partial sprite {}", baseKey);
+        }
+        return manifest;
+    }
+
+    /**
+     * The image's thumbnail decoded for one tile. Images without renditions point at their original,
+     * so this goes through the subsampled, size-guarded {@link ImageAnalysis} decode rather than a
+     * full ImageIO read.
+     */
+    private Thumbnail readThumbnail(Image image) {
+        String key = image.getThumbnailKey() != null ? image.getThumbnailKey() : image.getStorageKey();
+        byte[] bytes;
+        try {
+            bytes = storageService.getFileBytes(key);
+        } catch (IOException e) {
+            log.warn("Could not read thumbnail {} for sprite: {}", key, e.getMessage());
+            return new Thumbnail(null, true);
+        }
+        try {
+            ImageAnalysis analysis = ImageAnalysis.of(bytes);
+            return new Thumbnail(analysis != null ? analysis.decodeForEdge(tileSize) : null, false);
+        } catch (IOException e) {
+            log.warn("Could not decode thumbnail {} for sprite: {}", key, e.getMessage());
+            return new Thumbnail(null, false);
+        }
+    }
+
+    private SpriteResponse readManifest(String key) {
+        try {
+            if (storageService.stat(key).isEmpty()) return null;
+            return objectMapper.readValue(storageService.getFileBytes(key), SpriteResponse.class);
+        } catch (IOException e) {
+            log.warn("Unreadable sprite manifest {}, rebuilding", key, e);
+            return null;
+        }
+    }
+
+    /** Waiters each get their own copy since the URL is set per request. */
+    private SpriteResponse copyOf(SpriteResponse manifest) {
+        return SpriteResponse.builder()
+                .spriteKey(manifest.getSpriteKey())
+                .width(manifest.getWidth())
+                .height(manifest.getHeight())
+                .tileSize(manifest.getTileSize())
+                .columns(manifest.getColumns())
+                .tiles(manifest.getTiles())
+                .build();
+    }
+
+    /** A decoded tile image, or none: either undecodable (a permanent blank tile) or not readable right now. */
+    private static final class Thumbnail {
+        private final BufferedImage image;
+        private final boolean readFailed;
+
+        private Thumbnail(BufferedImage image, boolean readFailed) {
+            this.image = image;
+            this.readFailed = readFailed;
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -4,13 +4,110 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public interface StorageService {
     String uploadFile(MultipartFile file, String eventCode) throws IOException;
     void upload(String storageKey, InputStream content, String contentType) throws IOException;
+    void upload(String storageKey, byte[] content, String contentType) throws IOException;
     void delete(String storageKey) throws IOException;
     void deleteFile(String storageKey) throws IOException;
+
+    /**
+     * Write the object only if it is still the one that was read: expectedEtag is its ETag from
+     * {@link #stat}, or null if it must not exist yet. Returns false, writing nothing, when another
+     * writer changed it in between.
+     */
+    boolean uploadIfMatch(String storageKey, byte[] content, String contentType, String expectedEtag) throws IOException;
+
+    /**
+     * Keys of all objects starting with prefix.
+     */
+    List<String> listKeys(String prefix) throws IOException;
+
+    /**
+     * Delete every object whose key starts with prefix (e.g. {@code "sprites/42/"}).
+     */
+    void deleteAll(String prefix) throws IOException;
+
+    /**
+     * Write an object that is kept but rarely read (e.g. untouched originals of downscaled uploads),
+     * in a cheaper storage class where the backend has one.
+     */
+    default void uploadArchive(String storageKey, byte[] content, String contentType) throws IOException {
+        upload(storageKey, content, contentType);
+    }
     String getPublicUrl(String storageKey);
+
+    /**
+     * URL a client can GET the object from until expiresAt without going through the app (a
+     * presigned GET on S3, an HMAC-signed /api/files URL locally).
+     */
+    String createDownloadUrl(String storageKey, Instant expiresAt);
+
+    /**
+     * How long a download URL signed now keeps working at most, whatever expiry it was given: a
+     * presigned S3 URL dies with the credentials that signed it.
+     */
+    default Duration maxDownloadUrlTtl() {
+        return ChronoUnit.FOREVER.getDuration();
+    }
+
+    /**
+     * {@link #createDownloadUrl} for many keys sharing one expiry, keyed by storage key.
+     */
+    default Map<String, String> createDownloadUrls(Collection<String> storageKeys, Instant expiresAt) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (String key : storageKeys) {
+            urls.put(key, createDownloadUrl(key, expiresAt));
+        }
+        return urls;
+    }
     InputStream getFileStream(String storageKey) throws IOException;
     byte[] getFileBytes(String storageKey) throws IOException;
+
+    /**
+     * Stream {@code length} bytes starting at {@code offset} (a ranged GET on S3).
+     */
+    InputStream getFileStream(String storageKey, long offset, long length) throws IOException;
+
+    /**
+     * Copy a byte range of the object to out without buffering it on the heap.
+     */
+    default void transferTo(String storageKey, long offset, long length, OutputStream out) throws IOException {
+        try (InputStream in = getFileStream(storageKey, offset, length)) {
+            in.transferTo(out);
+        }
+    }
+
+    /**
+     * The object's file when storage is the local disk, so the servlet container can sendfile it.
+     */
+    default Optional<Path> localPath(String storageKey) {
+        return Optional.empty();
+    }
+    Optional<StoredObjectInfo> stat(String storageKey) throws IOException;
+
+    /**
+     * Short-lived URL a client can PUT the object to directly, bypassing the app servers.
+     */
+    String createUploadUrl(String storageKey, String contentType, Duration ttl);
+
+    /**
+     * Multipart writes for large or resumable uploads. Parts are numbered from 1 and may be re-sent;
+     * the object only appears under storageKey once the upload is completed.
+     */
+    String createMultipartUpload(String storageKey, String contentType) throws IOException;
+    void uploadPart(String storageKey, String uploadId, int partNumber, byte[] content) throws IOException;
+    void completeMultipartUpload(String storageKey, String uploadId) throws IOException;
+    void abortMultipartUpload(String storageKey, String uploadId) throws IOException;
 }
@@ -0,0 +1,18 @@
+package com.example.eventphoto.service;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Metadata of an object in storage, read without fetching its bytes.
+ */
+@Getter
+@Builder
+public class StoredObjectInfo {
+    private final long size;
+    private final String contentType;
+    private final Instant lastModified;
+    private final String etag;
+}
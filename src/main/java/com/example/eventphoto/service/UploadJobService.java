@@ -0,0 +1,269 @@
+package com.example.eventphoto.service;
+
+import com.example.eventphoto.dto.UploadFileResult;
+import com.example.eventphoto.dto.UploadJobResponse;
+import com.example.eventphoto.model.*;
+import com.example.eventphoto.repository.EventRepository;
+import com.example.eventphoto.repository.GuestRepository;
+import com.example.eventphoto.repository.UploadJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * Asynchronous guest uploads: the request only stages the raw bytes in storage and records a job;
+ * a worker pool then runs moderation, hashing, dedup and persistence in small chunks so per-file
+ * progress becomes visible while the job runs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadJobService {
+
+    private final UploadJobRepository uploadJobRepository;
+    private final EventRepository eventRepository;
+    private final GuestRepository guestRepository;
+    private final ImageService imageService;
+    private final StorageService storageService;
+    private final PlatformTransactionManager transactionManager;
+    @Qualifier("uploadJobExecutor")
+    private final ExecutorService uploadJobExecutor;
+
+    @Value("${upload.async.chunk-size:5}")
+    private int chunkSize;
+
+    private final Set<String> runningJobs = Collections.synchronizedSet(new HashSet<>());
+
+    @Transactional
+    public UploadJobResponse submit(Long eventId, Long guestId, MultipartFile[] files) {
+        Event event = eventRepository.findById(eventId).orElseThrow(() -> new RuntimeException("Event not found"));
+        Guest guest = guestRepository.findById(guestId).orElseThrow(() -> new RuntimeException("Guest not found"));
+        imageService.checkUploadAllowed(event, guest, files.length);
+
+        String jobId = UUID.randomUUID().toString();
+        UploadJob job = UploadJob.builder().id(jobId).event(event).guest(guest).build();
+        List<String> staged = new ArrayList<>();
+        try {
+            int position = 0;
+            for (MultipartFile file : files) {
+                if (file.isEmpty()) continue;
+                String stagingKey = event.getStorageFolderPath() + "staging/" + jobId + "/" + position;
+                try (InputStream in = file.getInputStream()) {
+                    storageService.upload(stagingKey, in, file.getContentType());
+                }
+                staged.add(stagingKey);
+                job.getItems().add(UploadJobItem.builder()
+                        .job(job)
+                        .position(position++)
+                        .originalFileName(file.getOriginalFilename())
+                        .contentType(file.getContentType())
+                        .stagingKey(stagingKey)
+                        .build());
+            }
+        } catch (IOException e) {
+            staged.forEach(this::deleteQuietly);
+            throw new RuntimeException("Upload failed: " + e.getMessage());
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(jobId);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                // No job row refers to the staged bytes unless the save committed
+                if (status != STATUS_COMMITTED) staged.forEach(UploadJobService.this::deleteQuietly);
+            }
+        });
+        job = uploadJobRepository.save(job);
+        return toResponse(job);
+    }
+
+    @Transactional(readOnly = true)
+    public UploadJobResponse getJob(String jobId, Long guestId) {
+        UploadJob job = uploadJobRepository.findByIdAndGuestId(jobId, guestId)
+                .orElseThrow(() -> new RuntimeException("Upload job not found"));
+        return toResponse(job);
+    }
+
+    @Transactional(readOnly = true)
+    public List<UploadJobResponse> recentJobs(Long eventId, Long guestId) {
+        return uploadJobRepository.findTop5ByEventIdAndGuestIdOrderByCreatedAtDesc(eventId, guestId).stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Staged bytes are durable, so jobs interrupted by a restart are picked up again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingJobs() {
+        List<UploadJob> jobs = uploadJobRepository.findByStatusIn(List.of(UploadJobStatus.QUEUED, UploadJobStatus.PROCESSING));
+        if (!jobs.isEmpty()) {
+            log.info("Resuming {} pending upload job(s)", jobs.size());
+        }
+        jobs.forEach(job -> enqueue(job.getId()));
+    }
+
+    private void enqueue(String jobId) {
+        if (!runningJobs.add(jobId)) return;
+        uploadJobExecutor.execute(() -> {
+            try {
+                process(jobId);
+            } catch (Exception e) {
+                log.error("Upload job {} failed", jobId, e);
+                failJob(jobId, e.getMessage());
+            } finally {
+                runningJobs.remove(jobId);
+            }
+        });
+    }
+
+    private void process(String jobId) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<Long> pendingItemIds = tx.execute(status -> {
+            UploadJob job = uploadJobRepository.findById(jobId).orElseThrow(() -> new RuntimeException("Upload job not found"));
+            job.setStatus(UploadJobStatus.PROCESSING);
+            return job.getItems().stream()
+                    .filter(item -> item.getStatus() == UploadItemStatus.PENDING)
+                    .map(UploadJobItem::getId)
+                    .collect(Collectors.toList());
+        });
+        for (int from = 0; from < pendingItemIds.size(); from += chunkSize) {
+            List<Long> chunk = pendingItemIds.subList(from, Math.min(from + chunkSize, pendingItemIds.size()));
+            List<String> consumed;
+            try {
+                consumed = tx.execute(status -> processChunk(jobId, chunk));
+            } catch (RuntimeException e) {
+                log.warn("Upload job {} chunk failed: {}", jobId, e.getMessage());
+                consumed = tx.execute(status -> markItemsFailed(jobId, chunk, e.getMessage()));
+            }
+            consumed.forEach(this::deleteQuietly);
+        }
+        markJob(jobId, UploadJobStatus.COMPLETED);
+    }
+
+    /**
+     * Ingest one chunk of staged files and record each outcome. Returns the staging keys of the
+     * chunk; every item has a final status once this transaction commits, so none is read again.
+     */
+    private List<String> processChunk(String jobId, List<Long> itemIds) {
+        UploadJob job = uploadJobRepository.findById(jobId).orElseThrow(() -> new RuntimeException("Upload job not found"));
+        List<UploadJobItem> items = job.getItems().stream()
+                .filter(item -> itemIds.contains(item.getId()))
+                .collect(Collectors.toList());
+        List<ImageService.UploadSource> sources = items.stream().map(this::stagedSource).collect(Collectors.toList());
+        List<UploadFileResult> results = imageService.ingest(job.getEvent(), job.getGuest(), sources);
+        List<String> consumed = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            UploadJobItem item = items.get(i);
+            UploadFileResult result = results.get(i);
+            item.setStatus(result.getStatus());
+            item.setMessage(truncate(result.getMessage()));
+            item.setImageId(result.getImageId());
+            consumed.add(item.getStagingKey());
+        }
+        return consumed;
+    }
+
+    private ImageService.UploadSource stagedSource(UploadJobItem item) {
+        return new ImageService.UploadSource() {
+            @Override
+            public String getOriginalFileName() {
+                return item.getOriginalFileName();
+            }
+
+            @Override
+            public IngestedUpload open() throws IOException {
+                try (InputStream in = storageService.getFileStream(item.getStagingKey())) {
+                    return IngestedUpload.read(in, item.getOriginalFileName(), item.getContentType(), -1);
+                }
+            }
+        };
+    }
+
+    /** Mark the items FAILED and return their staging keys. */
+    private List<String> markItemsFailed(String jobId, List<Long> itemIds, String message) {
+        return uploadJobRepository.findById(jobId).map(job -> job.getItems().stream()
+                .filter(item -> itemIds.contains(item.getId()))
+                .peek(item -> {
+                    item.setStatus(UploadItemStatus.FAILED);
+                    item.setMessage(truncate(message));
+                })
+                .map(UploadJobItem::getStagingKey)
+                .collect(Collectors.toList())).orElse(List.of());
+    }
+
+    /** Fail the job and its unprocessed items, and drop their staged bytes. */
+    private void failJob(String jobId, String message) {
+        List<String> staged = List.of();
+        try {
+            staged = new TransactionTemplate(transactionManager).execute(tx -> {
+                UploadJob job = uploadJobRepository.findById(jobId).orElse(null);
+                if (job == null) return List.<String>of();
+                job.setStatus(UploadJobStatus.FAILED);
+                List<Long> pending = job.getItems().stream()
+                        .filter(item -> item.getStatus() == UploadItemStatus.PENDING)
+                        .map(UploadJobItem::getId)
+                        .collect(Collectors.toList());
+                return markItemsFailed(jobId, pending, message);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not mark upload job {} failed: {}", jobId, e.getMessage());
+        }
+        staged.forEach(this::deleteQuietly);
+    }
+
+    private void markJob(String jobId, UploadJobStatus status) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx ->
+                uploadJobRepository.findById(jobId).ifPresent(job -> job.setStatus(status)));
+    }
+
+    private UploadJobResponse toResponse(UploadJob job) {
+        List<UploadFileResult> items = job.getItems().stream().map(item -> UploadFileResult.builder()
+                .index(item.getPosition())
+                .originalFileName(item.getOriginalFileName())
+                .status(item.getStatus())
+                .message(item.getMessage())
+                .imageId(item.getImageId())
+                .build()).collect(Collectors.toList());
+        return UploadJobResponse.builder()
+                .jobId(job.getId())
+                .eventId(job.getEvent().getId())
+                .status(job.getStatus())
+                .totalFiles(items.size())
+                .processedFiles((int) items.stream().filter(i -> i.getStatus() != UploadItemStatus.PENDING).count())
+                .createdAt(job.getCreatedAt())
+                .items(items)
+                .build();
+    }
+
+    private void deleteQuietly(String storageKey) {
+        try {
+            storageService.deleteFile(storageKey);
+        } catch (Exception e) {
+            log.warn("Could not delete staged file: {}", storageKey);
+        }
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 255 ? message.substring(0, 255) : message;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.eventphoto.service;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A ZIP archive described, not materialized: an ordered list of slices that are either generated
+ * bytes (headers, central directory) or byte ranges of stored objects. The layout is deterministic
+ * (STORED entries, CRC32 and size known up front, fixed entry order), so the total length and a
+ * strong ETag are known before anything is read, and any byte range can be served on its own
+ * (see {@link ZipStreamService#write}).
+ */
+@Getter
+public final class VirtualZip {
+
+    private final List<Slice> slices;
+    private final long length;
+    private final String etag;
+
+    public VirtualZip(List<Slice> slices, String etag) {
+        this.slices = Collections.unmodifiableList(slices);
+        this.length = slices.stream().mapToLong(Slice::getLength).sum();
+        this.etag = etag;
+    }
+
+    /**
+     * One member of an archive built from stored objects. Size and CRC32 must match the object.
+     */
+    @Getter
+    @Builder
+    public static class Item {
+        private final String name;
+        private final String storageKey;
+        private final long size;
+        private final long crc32;
+        private final long dosDateTime;
+    }
+
+    /**
+     * Archive of the items in the given order; duplicate names get " (2)", " (3)", ... suffixes.
+     */
+    public static VirtualZip of(List<Item> items) {
+        List<Slice> slices = new ArrayList<>(items.size() * 2 + 1);
+        List<ZipLayout.Entry> entries = new ArrayList<>(items.size());
+        Set<String> names = new HashSet<>();
+        MessageDigest digest = sha256();
+        long offset = 0;
+        for (Item item : items) {
+            ZipLayout.Entry entry = new ZipLayout.Entry(uniqueName(names, item.getName()), item.getCrc32(),
+                    item.getSize(), item.getDosDateTime(), offset);
+            entries.add(entry);
+            byte[] header = ZipLayout.localHeader(entry);
+            slices.add(Slice.bytes(header));
+            slices.add(Slice.object(item.getStorageKey(), 0, item.getSize()));
+            offset += header.length + item.getSize();
+            digest.update((entry.getName() + "|" + item.getStorageKey() + "|" + item.getCrc32() + "|"
+                    + item.getSize() + "|" + item.getDosDateTime() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        slices.add(Slice.bytes(ZipLayout.centralDirectory(entries, offset)));
+        return new VirtualZip(slices, "\"zip-" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"");
+    }
+
+    static String uniqueName(Set<String> used, String name) {
+        if (used.add(name)) return name;
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String ext = dot > 0 ? name.substring(dot) : "";
+        for (int n = 2; ; n++) {
+            String candidate = base + " (" + n + ")" + ext;
+            if (used.add(candidate)) return candidate;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Generated bytes, or {@code length} bytes of a stored object starting at {@code offset}.
+     */
+    @Getter
+    public static final class Slice {
+        private final byte[] bytes;
+        private final String storageKey;
+        private final long offset;
+        private final long length;
+
+        private Slice(byte[] bytes, String storageKey, long offset, long length) {
+            this.bytes = bytes;
+            this.storageKey = storageKey;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public static Slice bytes(byte[] bytes) {
+            return new Slice(bytes, null, 0, bytes.length);
+        }
+
+        public static Slice bytes(byte[] bytes, long offset, long length) {
+            return new Slice(bytes, null, offset, length);
+        }
+
+        public static Slice object(String storageKey, long offset, long length) {
+            return new Slice(null, storageKey, offset, length);
+        }
+    }
+}
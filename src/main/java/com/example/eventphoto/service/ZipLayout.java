@@ -0,0 +1,181 @@
+package com.example.eventphoto.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Byte layout of ZIP archives made only of STORED entries whose CRC32 and size are known up front:
+ * local headers without data descriptors, the central directory and end records (ZIP64 where sizes,
+ * offsets or the entry count need it). Because every header length is a function of the entry name
+ * and size, offsets and the total length of an archive can be computed without writing it.
+ */
+public final class ZipLayout {
+
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+    private static final int UTF8_FLAG = 0x0800;
+    private static final int VERSION = 20;
+    private static final int VERSION_ZIP64 = 45;
+
+    private ZipLayout() {
+    }
+
+    /**
+     * One member: name, CRC32, size, DOS timestamp ({@link #dosDateTime}) and the offset of its
+     * local header in the archive.
+     */
+    public static final class Entry {
+        private final String name;
+        private final long crc32;
+        private final long size;
+        private final long dosDateTime;
+        private final long offset;
+
+        public Entry(String name, long crc32, long size, long dosDateTime, long offset) {
+            this.name = name;
+            this.crc32 = crc32;
+            this.size = size;
+            this.dosDateTime = dosDateTime;
+            this.offset = offset;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        /** Offset of the entry's first data byte. */
+        public long getDataOffset() {
+            return offset + localHeaderLength(name, size);
+        }
+    }
+
+    public static long dosDateTime(LocalDateTime time) {
+        if (time == null || time.getYear() < 1980) return (1 << 21) | (1 << 16);
+        long date = ((long) (time.getYear() - 1980) << 9) | (time.getMonthValue() << 5) | time.getDayOfMonth();
+        long clock = (time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() / 2);
+        return (date << 16) | clock;
+    }
+
+    public static int localHeaderLength(String name, long size) {
+        return 30 + nameBytes(name).length + (size >= MAX_32 ? 20 : 0);
+    }
+
+    public static byte[] localHeader(Entry entry) {
+        byte[] name = nameBytes(entry.name);
+        boolean zip64 = entry.size >= MAX_32;
+        ByteBuffer b = buffer(30 + name.length + (zip64 ? 20 : 0));
+        b.putInt(0x04034b50);
+        b.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION));
+        b.putShort((short) UTF8_FLAG);
+        b.putShort((short) 0);
+        b.putInt((int) entry.dosDateTime);
+        b.putInt((int) entry.crc32);
+        b.putInt((int) (zip64 ? MAX_32 : entry.size));
+        b.putInt((int) (zip64 ? MAX_32 : entry.size));
+        b.putShort((short) name.length);
+        b.putShort((short) (zip64 ? 20 : 0));
+        b.put(name);
+        if (zip64) {
+            b.putShort((short) 0x0001);
+            b.putShort((short) 16);
+            b.putLong(entry.size);
+            b.putLong(entry.size);
+        }
+        return b.array();
+    }
+
+    /**
+     * Central directory plus end records for entries whose local headers and data end at
+     * directoryOffset.
+     */
+    public static byte[] centralDirectory(List<Entry> entries, long directoryOffset) {
+        int length = 0;
+        for (Entry entry : entries) {
+            length += 46 + nameBytes(entry.name).length + zip64ExtraLength(entry);
+        }
+        boolean zip64 = entries.size() >= MAX_16 || directoryOffset >= MAX_32 || length >= MAX_32;
+        ByteBuffer b = buffer(length + (zip64 ? 56 + 20 : 0) + 22);
+        for (Entry entry : entries) {
+            byte[] name = nameBytes(entry.name);
+            boolean bigSize = entry.size >= MAX_32;
+            boolean bigOffset = entry.offset >= MAX_32;
+            int extra = zip64ExtraLength(entry);
+            b.putInt(0x02014b50);
+            b.putShort((short) VERSION_ZIP64);
+            b.putShort((short) (extra > 0 ? VERSION_ZIP64 : VERSION));
+            b.putShort((short) UTF8_FLAG);
+            b.putShort((short) 0);
+            b.putInt((int) entry.dosDateTime);
+            b.putInt((int) entry.crc32);
+            b.putInt((int) (bigSize ? MAX_32 : entry.size));
+            b.putInt((int) (bigSize ? MAX_32 : entry.size));
+            b.putShort((short) name.length);
+            b.putShort((short) extra);
+            b.putShort((short) 0);
+            b.putShort((short) 0);
+            b.putShort((short) 0);
+            b.putInt(0);
+            b.putInt((int) (bigOffset ? MAX_32 : entry.offset));
+            b.put(name);
+            if (extra > 0) {
+                b.putShort((short) 0x0001);
+                b.putShort((short) (extra - 4));
+                if (bigSize) {
+                    b.putLong(entry.size);
+                    b.putLong(entry.size);
+                }
+                if (bigOffset) b.putLong(entry.offset);
+            }
+        }
+        if (zip64) {
+            long zip64EndOffset = directoryOffset + length;
+            b.putInt(0x06064b50);
+            b.putLong(44);
+            b.putShort((short) VERSION_ZIP64);
+            b.putShort((short) VERSION_ZIP64);
+            b.putInt(0);
+            b.putInt(0);
+            b.putLong(entries.size());
+            b.putLong(entries.size());
+            b.putLong(length);
+            b.putLong(directoryOffset);
+            b.putInt(0x07064b50);
+            b.putInt(0);
+            b.putLong(zip64EndOffset);
+            b.putInt(1);
+        }
+        b.putInt(0x06054b50);
+        b.putShort((short) 0);
+        b.putShort((short) 0);
+        b.putShort((short) (zip64 ? MAX_16 : entries.size()));
+        b.putShort((short) (zip64 ? MAX_16 : entries.size()));
+        b.putInt((int) (zip64 ? MAX_32 : length));
+        b.putInt((int) (zip64 ? MAX_32 : directoryOffset));
+        b.putShort((short) 0);
+        return b.array();
+    }
+
+    private static int zip64ExtraLength(Entry entry) {
+        int fields = (entry.size >= MAX_32 ? 16 : 0) + (entry.offset >= MAX_32 ? 8 : 0);
+        return fields == 0 ? 0 : 4 + fields;
+    }
+
+    private static byte[] nameBytes(String name) {
+        return name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer buffer(int length) {
+        return ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
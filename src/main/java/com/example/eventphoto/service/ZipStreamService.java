@@ -0,0 +1,160 @@
+package com.example.eventphoto.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Streams {@link VirtualZip} archives, or any byte range of one, straight to an output stream.
+ * While one slice is written, the next few stored-object slices are fetched concurrently on the
+ * storage I/O pool, bounded by {@code downloads.zip.prefetch-count} slices and
+ * {@code downloads.zip.prefetch-bytes} bytes; slices larger than the byte budget are streamed through
+ * in order. Memory per download therefore stays constant whatever the selection size.
+ */
+@Service
+public class ZipStreamService {
+
+    private final StorageService storageService;
+    private final ExecutorService storageIoExecutor;
+    private final int prefetchCount;
+    private final long prefetchBytes;
+
+    public ZipStreamService(StorageService storageService,
+                            @Qualifier("storageIoExecutor") ExecutorService storageIoExecutor,
+                            @Value("${downloads.zip.prefetch-count:8}") int prefetchCount,
+                            @Value("${downloads.zip.prefetch-bytes:67108864}") long prefetchBytes) {
+        this.storageService = storageService;
+        this.storageIoExecutor = storageIoExecutor;
+        this.prefetchCount = Math.max(1, prefetchCount);
+        this.prefetchBytes = Math.max(1, prefetchBytes);
+    }
+
+    /**
+     * Write {@code length} bytes of the archive starting at {@code start}; only the parts of stored
+     * objects inside the range are read. The stream is flushed but not closed.
+     */
+    public void write(VirtualZip zip, long start, long length, OutputStream out) throws IOException {
+        List<VirtualZip.Slice> slices = clip(zip, start, length);
+        Deque<Pending> window = new ArrayDeque<>();
+        long reserved = 0;
+        int fetching = 0;
+        int next = 0;
+        try {
+            while (next < slices.size() || !window.isEmpty()) {
+                // Top up the prefetch window with the object slices that fit the budget, in order;
+                // generated bytes and oversized slices are queued to be written/streamed in place.
+                while (next < slices.size() && fetching < prefetchCount) {
+                    VirtualZip.Slice slice = slices.get(next);
+                    if (slice.getBytes() != null || slice.getLength() > prefetchBytes) {
+                        window.add(new Pending(slice, 0, null));
+                    } else {
+                        if (reserved + slice.getLength() > prefetchBytes && fetching > 0) break;
+                        reserved += slice.getLength();
+                        fetching++;
+                        window.add(new Pending(slice, slice.getLength(),
+                                CompletableFuture.supplyAsync(() -> fetch(slice), storageIoExecutor)));
+                    }
+                    next++;
+                }
+                Pending pending = window.poll();
+                VirtualZip.Slice slice = pending.slice;
+                if (slice.getBytes() != null) {
+                    out.write(slice.getBytes(), (int) slice.getOffset(), (int) slice.getLength());
+                } else if (pending.bytes == null) {
+                    try (InputStream in = storageService.getFileStream(slice.getStorageKey(), slice.getOffset(), slice.getLength())) {
+                        copyExactly(in, out, slice.getLength(), slice.getStorageKey());
+                    }
+                } else {
+                    out.write(join(pending.bytes));
+                    reserved -= pending.reserved;
+                    fetching--;
+                }
+            }
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            window.forEach(p -> {
+                if (p.bytes != null) p.bytes.cancel(false);
+            });
+            throw e;
+        }
+    }
+
+    /** The slices overlapping [start, start + length), trimmed to it. */
+    private static List<VirtualZip.Slice> clip(VirtualZip zip, long start, long length) {
+        List<VirtualZip.Slice> clipped = new ArrayList<>();
+        long end = start + length;
+        long position = 0;
+        for (VirtualZip.Slice slice : zip.getSlices()) {
+            long sliceStart = position;
+            long sliceEnd = position + slice.getLength();
+            position = sliceEnd;
+            if (sliceEnd <= start || slice.getLength() == 0) continue;
+            if (sliceStart >= end) break;
+            long from = Math.max(start, sliceStart) - sliceStart;
+            long to = Math.min(end, sliceEnd) - sliceStart;
+            if (from == 0 && to == slice.getLength()) {
+                clipped.add(slice);
+            } else if (slice.getBytes() != null) {
+                clipped.add(VirtualZip.Slice.bytes(slice.getBytes(), slice.getOffset() + from, to - from));
+            } else {
+                clipped.add(VirtualZip.Slice.object(slice.getStorageKey(), slice.getOffset() + from, to - from));
+            }
+        }
+        return clipped;
+    }
+
+    private byte[] fetch(VirtualZip.Slice slice) {
+        try (InputStream in = storageService.getFileStream(slice.getStorageKey(), slice.getOffset(), slice.getLength())) {
+            byte[] bytes = in.readNBytes((int) slice.getLength());
+            if (bytes.length < slice.getLength()) {
+                throw new IOException("Object " + slice.getStorageKey() + " is shorter than its recorded size");
+            }
+            return bytes;
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    static void copyExactly(InputStream in, OutputStream out, long size, String storageKey) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = size;
+        while (remaining > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (n < 0) throw new IOException("Object " + storageKey + " is shorter than its recorded size " + size);
+            out.write(buffer, 0, n);
+            remaining -= n;
+        }
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> bytes) throws IOException {
+        try {
+            return bytes.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw e;
+        }
+    }
+
+    private static final class Pending {
+        private final VirtualZip.Slice slice;
+        private final long reserved;
+        private final CompletableFuture<byte[]> bytes;
+
+        private Pending(VirtualZip.Slice slice, long reserved, CompletableFuture<byte[]> bytes) {
+            this.slice = slice;
+            this.reserved = reserved;
+            this.bytes = bytes;
+        }
+    }
+}
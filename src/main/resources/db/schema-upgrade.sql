@@ -0,0 +1,15 @@
+-- Idempotent schema upgrades, run after Hibernate's ddl-auto=update on every startup.
+
+-- Pooled sequence ids (allocationSize = 50) for batched inserts; move each sequence past rows
+-- created while the tables still used IDENTITY columns.
+SELECT setval('images_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM images), (SELECT last_value FROM images_seq)));
+SELECT setval('guests_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM guests), (SELECT last_value FROM guests_seq)));
+SELECT setval('events_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM events), (SELECT last_value FROM events_seq)));
+
+-- Perceptual hashes moved from Base64 text (perceptual_hash) to a bigint (phash). BigInteger
+-- bytes are big-endian two's complement, so left-padding the hex to 16 digits gives the value.
+-- The old column is left in place, unmapped, so this stays re-runnable; drop it once all nodes
+-- run this version. The ADD COLUMN only matters on fresh databases, where it never existed.
+ALTER TABLE images ADD COLUMN IF NOT EXISTS perceptual_hash VARCHAR(100);
+UPDATE images SET phash = CAST(CAST(('x' || lpad(encode(decode(perceptual_hash, 'base64'), 'hex'), 16, '0')) AS bit(64)) AS bigint)
+WHERE phash IS NULL AND perceptual_hash IS NOT NULL AND length(decode(perceptual_hash, 'base64')) <= 8;
@@ -0,0 +1,304 @@
+package com.example.eventphoto.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Round trip of {@link VirtualZip} archives through {@link ZipStreamService}: the streamed bytes are
+ * read back with java.util.zip, and every byte range served on its own equals the same bytes of the
+ * full stream.
+ */
+class VirtualZipTest {
+
+    /** Just over the 32-bit limit, so the entry needs ZIP64 sizes and the next one a ZIP64 offset. */
+    private static final long BIG_SIZE = 0xFFFFFFFFL + 17;
+    private static final long DOS_TIME = ZipLayout.dosDateTime(LocalDateTime.of(2024, 6, 1, 12, 30, 10));
+
+    private final Map<String, byte[]> objects = new HashMap<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    /** A small prefetch budget, so both prefetched and streamed-through slices are exercised. */
+    private final ZipStreamService zipStreamService = new ZipStreamService(storage(), executor, 3, 40_000);
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void smallArchiveReadsBackAndRangesMatchFullStream() throws IOException {
+        Random random = new Random(42);
+        List<VirtualZip.Item> items = new ArrayList<>();
+        items.add(put("a.jpg", random, 1000));
+        items.add(put("empty.txt", random, 0));
+        items.add(put("a.jpg", random, 70_000));
+        items.add(put("g\u00e4ste/Stra\u00dfe.png", random, 12_345));
+        items.add(put("noext", random, 5));
+        VirtualZip zip = VirtualZip.of(items);
+
+        byte[] full = stream(zip, 0, zip.getLength());
+        assertEquals(zip.getLength(), full.length);
+
+        List<String> expectedNames = List.of("a.jpg", "empty.txt", "a (2).jpg", "g\u00e4ste/Stra\u00dfe.png", "noext");
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(full))) {
+            for (int i = 0; i < items.size(); i++) {
+                ZipEntry entry = in.getNextEntry();
+                assertNotNull(entry);
+                assertEquals(expectedNames.get(i), entry.getName());
+                assertEquals(ZipEntry.STORED, entry.getMethod());
+                assertArrayEquals(objects.get(items.get(i).getStorageKey()), in.readAllBytes());
+            }
+            assertNull(in.getNextEntry());
+        }
+
+        Path file = tempDir.resolve("small.zip");
+        Files.write(file, full);
+        try (ZipFile zipFile = new ZipFile(file.toFile())) {
+            assertEquals(items.size(), zipFile.size());
+            for (int i = 0; i < items.size(); i++) {
+                ZipEntry entry = zipFile.getEntry(expectedNames.get(i));
+                assertEquals(items.get(i).getSize(), entry.getSize());
+                assertEquals(items.get(i).getCrc32(), entry.getCrc());
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    assertArrayEquals(objects.get(items.get(i).getStorageKey()), in.readAllBytes());
+                }
+            }
+        }
+
+        for (long[] range : ranges(zip, random, 300)) {
+            int start = (int) range[0];
+            int length = (int) range[1];
+            assertArrayEquals(Arrays.copyOfRange(full, start, start + length), stream(zip, start, length),
+                    "bytes " + start + "+" + length);
+        }
+    }
+
+    @Test
+    void zip64ArchiveReadsBackAndRangesMatchFullStream() throws IOException {
+        Random random = new Random(7);
+        VirtualZip.Item first = put("first.jpg", random, 3000);
+        VirtualZip.Item big = VirtualZip.Item.builder()
+                .name("big.bin")
+                .storageKey("big")
+                .size(BIG_SIZE)
+                .crc32(bigCrc())
+                .dosDateTime(DOS_TIME)
+                .build();
+        VirtualZip.Item after = put("after.jpg", random, 4000);
+        VirtualZip zip = VirtualZip.of(List.of(first, big, after));
+
+        // The full stream goes to a sparse file: the big object is zeros apart from its last bytes.
+        Path file = tempDir.resolve("big.zip");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+             SparseFileOutputStream out = new SparseFileOutputStream(raf)) {
+            zipStreamService.write(zip, 0, zip.getLength(), out);
+            assertEquals(zip.getLength(), out.position);
+            raf.setLength(out.position);
+        }
+
+        try (ZipFile zipFile = new ZipFile(file.toFile())) {
+            assertEquals(3, zipFile.size());
+            for (VirtualZip.Item item : List.of(first, big, after)) {
+                ZipEntry entry = zipFile.getEntry(item.getName());
+                assertEquals(item.getSize(), entry.getSize());
+                assertEquals(item.getCrc32(), entry.getCrc());
+            }
+            for (VirtualZip.Item item : List.of(first, after)) {
+                try (InputStream in = zipFile.getInputStream(zipFile.getEntry(item.getName()))) {
+                    assertArrayEquals(objects.get(item.getStorageKey()), in.readAllBytes());
+                }
+            }
+            CRC32 crc = new CRC32();
+            long size = 0;
+            byte[] buffer = new byte[1 << 20];
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry("big.bin"))) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    crc.update(buffer, 0, n);
+                    size += n;
+                }
+            }
+            assertEquals(BIG_SIZE, size);
+            assertEquals(big.getCrc32(), crc.getValue());
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            for (long[] range : ranges(zip, random, 50)) {
+                long start = range[0];
+                int length = (int) Math.min(range[1], 1 << 20);
+                byte[] expected = new byte[length];
+                raf.seek(start);
+                raf.readFully(expected);
+                assertArrayEquals(expected, stream(zip, start, length), "bytes " + start + "+" + length);
+            }
+        }
+    }
+
+    private VirtualZip.Item put(String name, Random random, int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        String key = "objects/" + objects.size();
+        objects.put(key, bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return VirtualZip.Item.builder()
+                .name(name)
+                .storageKey(key)
+                .size(size)
+                .crc32(crc.getValue())
+                .dosDateTime(DOS_TIME)
+                .build();
+    }
+
+    private byte[] stream(VirtualZip zip, long start, long length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        zipStreamService.write(zip, start, length, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Ranges starting just before, at and after every slice boundary, ranges ending at the end of the
+     * archive, and random ones, all within the archive.
+     */
+    private static List<long[]> ranges(VirtualZip zip, Random random, int randomCount) {
+        long total = zip.getLength();
+        List<long[]> ranges = new ArrayList<>();
+        long position = 0;
+        for (VirtualZip.Slice slice : zip.getSlices()) {
+            for (long start = position - 3; start <= position + 3; start++) {
+                if (start < 0 || start >= total) continue;
+                ranges.add(new long[]{start, Math.min(1 + random.nextInt(100_000), total - start)});
+            }
+            position += slice.getLength();
+        }
+        ranges.add(new long[]{total - 1, 1});
+        ranges.add(new long[]{total - 500, 500});
+        for (int i = 0; i < randomCount; i++) {
+            long start = (long) (random.nextDouble() * total);
+            ranges.add(new long[]{start, Math.min(1 + random.nextInt(200_000), total - start)});
+        }
+        return ranges;
+    }
+
+    /** Storage that only serves ranged reads of the in-memory objects and of the big one. */
+    private StorageService storage() {
+        return (StorageService) Proxy.newProxyInstance(StorageService.class.getClassLoader(),
+                new Class<?>[]{StorageService.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("getFileStream") || args.length != 3) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    String key = (String) args[0];
+                    long offset = (Long) args[1];
+                    long length = (Long) args[2];
+                    if (key.equals("big")) return new BigObjectStream(offset, length);
+                    return new ByteArrayInputStream(objects.get(key), (int) offset, (int) length);
+                });
+    }
+
+    private static long bigCrc() {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1 << 20];
+        try (InputStream in = new BigObjectStream(0, BIG_SIZE)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return crc.getValue();
+    }
+
+    /** The big object: zeros, except that each of its last 64 bytes is its distance from the end. */
+    private static final class BigObjectStream extends InputStream {
+        private long position;
+        private final long end;
+
+        private BigObjectStream(long offset, long length) {
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        private static byte byteAt(long position) {
+            long fromEnd = BIG_SIZE - position;
+            return fromEnd <= 64 ? (byte) fromEnd : 0;
+        }
+
+        @Override
+        public int read() {
+            if (position >= end) return -1;
+            return byteAt(position++) & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= end) return -1;
+            int n = (int) Math.min(len, end - position);
+            Arrays.fill(b, off, off + n, (byte) 0);
+            for (long p = Math.max(position, BIG_SIZE - 64); p < position + n; p++) {
+                b[off + (int) (p - position)] = byteAt(p);
+            }
+            position += n;
+            return n;
+        }
+    }
+
+    /** Writes to a file, skipping runs of zeros so they stay holes. */
+    private static final class SparseFileOutputStream extends OutputStream {
+        private final RandomAccessFile raf;
+        private long position;
+
+        private SparseFileOutputStream(RandomAccessFile raf) {
+            this.raf = raf;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            boolean zeros = true;
+            for (int i = off; i < off + len && zeros; i++) {
+                zeros = b[i] == 0;
+            }
+            if (!zeros) {
+                raf.seek(position);
+                raf.write(b, off, len);
+            }
+            position += len;
+        }
+    }
+}